@@ -0,0 +1,353 @@
+package gitlet;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/** A compressed set of non-negative ints, after Roaring bitmaps (Chambi,
+ *  Lemire, et al., "Better bitmap performance with Roaring bitmaps",
+ *  Software: Practice and Experience, 2016).  Values are grouped by their
+ *  high 16 bits into containers holding their low 16 bits: a sorted
+ *  array for a container of at most ARRAY_LIMIT values, and otherwise a
+ *  bitmap of 2^16 bits.  Sparse sets thus take about two bytes per value
+ *  and dense ones about one bit, and unions and differences work a
+ *  container at a time.
+ *
+ *  A bitmap is written in the form
+ *      COUNT:4 CONTAINER...
+ *  in increasing order of key, where each CONTAINER is
+ *      KEY:2 SIZE:2 VALUES:SIZE*2     for an array of SIZE values, or
+ *      KEY:2 0xffff:2 WORDS:1024*8    for a bitmap
+ *  and SIZE is at most ARRAY_LIMIT.
+ */
+class Bitmap {
+
+    /** Most values held in a container as an array. */
+    static final int ARRAY_LIMIT = 4096;
+
+    /** Number of 64-bit words in a bitmap container. */
+    private static final int WORDS = 1024;
+    /** SIZE written for a bitmap container. */
+    private static final int BITS_MARK = 0xffff;
+
+    /** An empty set. */
+    Bitmap() {
+        keys = new char[4];
+        containers = new Container[4];
+    }
+
+    /** Adds VALUE to me. */
+    void add(int value) {
+        char key = (char) (value >>> 16);
+        int k = find(key);
+        if (k < 0) {
+            k = -k - 1;
+            insert(k, key, new Container());
+        }
+        containers[k].add((char) value);
+    }
+
+    /** Returns true iff I contain VALUE. */
+    boolean contains(int value) {
+        int k = find((char) (value >>> 16));
+        return k >= 0 && containers[k].contains((char) value);
+    }
+
+    /** Returns the number of values I contain. */
+    int cardinality() {
+        int result = 0;
+        for (int k = 0; k < size; k += 1) {
+            result += containers[k].cardinality;
+        }
+        return result;
+    }
+
+    /** Returns true iff I contain no values. */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** Adds every value in OTHER to me. */
+    void or(Bitmap other) {
+        for (int j = 0; j < other.size; j += 1) {
+            int k = find(other.keys[j]);
+            if (k < 0) {
+                insert(-k - 1, other.keys[j], other.containers[j].copy());
+            } else {
+                containers[k].or(other.containers[j]);
+            }
+        }
+    }
+
+    /** Removes every value in OTHER from me. */
+    void andNot(Bitmap other) {
+        int n = 0;
+        for (int k = 0; k < size; k += 1) {
+            int j = other.find(keys[k]);
+            if (j >= 0) {
+                containers[k].andNot(other.containers[j]);
+            }
+            if (containers[k].cardinality > 0) {
+                keys[n] = keys[k];
+                containers[n] = containers[k];
+                n += 1;
+            }
+        }
+        Arrays.fill(containers, n, size, null);
+        size = n;
+    }
+
+    /** Calls ACTION on each of my values, in increasing order. */
+    void forEach(IntConsumer action) {
+        for (int k = 0; k < size; k += 1) {
+            containers[k].forEach(keys[k] << 16, action);
+        }
+    }
+
+    /** Write me to OUT in the form described above. */
+    void write(DataOutputStream out) throws IOException {
+        out.writeInt(size);
+        for (int k = 0; k < size; k += 1) {
+            Container c = containers[k];
+            out.writeChar(keys[k]);
+            if (c.bits != null) {
+                out.writeChar(BITS_MARK);
+                for (long word : c.bits) {
+                    out.writeLong(word);
+                }
+            } else {
+                out.writeChar(c.cardinality);
+                for (int i = 0; i < c.cardinality; i += 1) {
+                    out.writeChar(c.values[i]);
+                }
+            }
+        }
+    }
+
+    /** Returns the bitmap written at the position of IN, advancing IN
+     *  past it. */
+    static Bitmap read(ByteBuffer in) {
+        Bitmap result = new Bitmap();
+        for (int n = in.getInt(); n > 0; n -= 1) {
+            char key = in.getChar();
+            int mark = in.getChar();
+            Container c = new Container();
+            if (mark == BITS_MARK) {
+                c.values = null;
+                c.bits = new long[WORDS];
+                for (int i = 0; i < WORDS; i += 1) {
+                    c.bits[i] = in.getLong();
+                    c.cardinality += Long.bitCount(c.bits[i]);
+                }
+            } else {
+                c.values = new char[Math.max(mark, 4)];
+                for (int i = 0; i < mark; i += 1) {
+                    c.values[i] = in.getChar();
+                }
+                c.cardinality = mark;
+            }
+            result.insert(result.size, key, c);
+        }
+        return result;
+    }
+
+    /** Returns the position of KEY among my keys, or -(P + 1) if it is
+     *  absent and belongs at position P. */
+    private int find(char key) {
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+
+    /** Insert container C with key KEY at position K. */
+    private void insert(int k, char key, Container c) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, 2 * size);
+            containers = Arrays.copyOf(containers, 2 * size);
+        }
+        System.arraycopy(keys, k, keys, k + 1, size - k);
+        System.arraycopy(containers, k, containers, k + 1, size - k);
+        keys[k] = key;
+        containers[k] = c;
+        size += 1;
+    }
+
+    /** The values of one bitmap that share their high 16 bits, held as a
+     *  sorted array while there are at most ARRAY_LIMIT of them and as a
+     *  bitmap otherwise. */
+    private static class Container {
+
+        /** An empty container. */
+        Container() {
+            values = new char[4];
+        }
+
+        /** Returns a copy of me. */
+        Container copy() {
+            Container result = new Container();
+            result.values = values == null ? null : values.clone();
+            result.bits = bits == null ? null : bits.clone();
+            result.cardinality = cardinality;
+            return result;
+        }
+
+        /** Adds V to me. */
+        void add(char v) {
+            if (bits != null) {
+                long old = bits[v >>> 6];
+                bits[v >>> 6] |= 1L << v;
+                if (bits[v >>> 6] != old) {
+                    cardinality += 1;
+                }
+                return;
+            }
+            int i = Arrays.binarySearch(values, 0, cardinality, v);
+            if (i >= 0) {
+                return;
+            }
+            i = -i - 1;
+            if (cardinality == ARRAY_LIMIT) {
+                toBits();
+                add(v);
+                return;
+            }
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values,
+                                       Math.min(2 * cardinality,
+                                                ARRAY_LIMIT));
+            }
+            System.arraycopy(values, i, values, i + 1, cardinality - i);
+            values[i] = v;
+            cardinality += 1;
+        }
+
+        /** Returns true iff I contain V. */
+        boolean contains(char v) {
+            if (bits != null) {
+                return (bits[v >>> 6] & (1L << v)) != 0;
+            }
+            return Arrays.binarySearch(values, 0, cardinality, v) >= 0;
+        }
+
+        /** Adds the values of OTHER to me. */
+        void or(Container other) {
+            if (bits == null && other.bits == null
+                && cardinality + other.cardinality <= ARRAY_LIMIT) {
+                char[] merged = new char[Math.max(4, cardinality
+                                                  + other.cardinality)];
+                int n = 0;
+                int i = 0;
+                int j = 0;
+                while (i < cardinality || j < other.cardinality) {
+                    if (j == other.cardinality
+                        || (i < cardinality
+                            && values[i] < other.values[j])) {
+                        merged[n++] = values[i++];
+                    } else if (i == cardinality
+                               || other.values[j] < values[i]) {
+                        merged[n++] = other.values[j++];
+                    } else {
+                        merged[n++] = values[i++];
+                        j += 1;
+                    }
+                }
+                values = merged;
+                cardinality = n;
+                return;
+            }
+            toBits();
+            if (other.bits != null) {
+                for (int w = 0; w < WORDS; w += 1) {
+                    bits[w] |= other.bits[w];
+                }
+            } else {
+                for (int i = 0; i < other.cardinality; i += 1) {
+                    bits[other.values[i] >>> 6] |= 1L << other.values[i];
+                }
+            }
+            recount();
+        }
+
+        /** Removes the values of OTHER from me. */
+        void andNot(Container other) {
+            if (bits == null) {
+                int n = 0;
+                for (int i = 0; i < cardinality; i += 1) {
+                    if (!other.contains(values[i])) {
+                        values[n++] = values[i];
+                    }
+                }
+                cardinality = n;
+                return;
+            }
+            if (other.bits != null) {
+                for (int w = 0; w < WORDS; w += 1) {
+                    bits[w] &= ~other.bits[w];
+                }
+            } else {
+                for (int i = 0; i < other.cardinality; i += 1) {
+                    bits[other.values[i] >>> 6] &= ~(1L << other.values[i]);
+                }
+            }
+            recount();
+        }
+
+        /** Calls ACTION on each of my values plus HIGH, in increasing
+         *  order. */
+        void forEach(int high, IntConsumer action) {
+            if (bits == null) {
+                for (int i = 0; i < cardinality; i += 1) {
+                    action.accept(high | values[i]);
+                }
+                return;
+            }
+            for (int w = 0; w < WORDS; w += 1) {
+                for (long word = bits[w]; word != 0; word &= word - 1) {
+                    action.accept(high | (w << 6)
+                                  | Long.numberOfTrailingZeros(word));
+                }
+            }
+        }
+
+        /** Convert me to a bitmap, if I am not one already. */
+        private void toBits() {
+            if (bits != null) {
+                return;
+            }
+            bits = new long[WORDS];
+            for (int i = 0; i < cardinality; i += 1) {
+                bits[values[i] >>> 6] |= 1L << values[i];
+            }
+            values = null;
+        }
+
+        /** Recompute my cardinality after a change to my bitmap, and
+         *  convert me back to an array if I have become sparse. */
+        private void recount() {
+            cardinality = 0;
+            for (long word : bits) {
+                cardinality += Long.bitCount(word);
+            }
+            if (cardinality <= ARRAY_LIMIT) {
+                values = new char[Math.max(4, cardinality)];
+                int[] n = { 0 };
+                forEach(0, v -> values[n[0]++] = (char) v);
+                bits = null;
+            }
+        }
+
+        /** My values, in increasing order, if I am an array. */
+        private char[] values;
+        /** My bits, if I am a bitmap. */
+        private long[] bits;
+        /** Number of values in me. */
+        private int cardinality;
+    }
+
+    /** The keys of my containers, in increasing order. */
+    private char[] keys;
+    /** My containers, in order of key. */
+    private Container[] containers;
+    /** Number of containers in use. */
+    private int size;
+}
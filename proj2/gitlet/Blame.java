@@ -0,0 +1,320 @@
+package gitlet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import static gitlet.Utils.*;
+
+/** The attribution of each line of a file to the commit that last
+ *  changed it.
+ *
+ *  History is walked over the commit graph.  Consecutive commits in which
+ *  the file has the same blob are one version of it: a commit one of
+ *  whose parents has the same blob takes its lines wholesale from that
+ *  parent, so only the commits that changed the file are diffed, each
+ *  against the versions of its parents (see Diff).  A line unchanged from
+ *  a parent's version is attributed as it was there, trying first parents
+ *  first; any other line to the commit itself.  The versions are found
+ *  first, then attributed oldest first, each attribution being dropped
+ *  once every later version that needs it has been computed.
+ *
+ *  The result for each commit and file blamed is cached in a directory,
+ *  and a cached commit ends the walk back from any later commit, so that
+ *  blaming a file again after a few commits costs only a few diffs.  A
+ *  cache entry is a file named by the commit's UID, in a subdirectory
+ *  named by the SHA-1 hash of the path, of the form
+ *      MAGIC VERSION BLOB:20 COUNT:4 UID:20*COUNT LINES:4 INDEX...
+ *  where the UIDs are those of the commits to which lines are
+ *  attributed, and each INDEX, a varint, selects the UID of a line.
+ *  Entries are checked against the blob and the commit graph before use,
+ *  and the least recently used are deleted beyond CACHE_LIMIT.
+ */
+class Blame {
+
+    /** Magic number at the start of a cache entry ("GLBL"). */
+    static final int MAGIC = 0x474c424c;
+    /** Current version of the cache entry format. */
+    static final int VERSION = 1;
+    /** Most entries kept in the cache. */
+    static final int CACHE_LIMIT = 256;
+
+    /** Blames files in the commits of GRAPH, whose objects are in
+     *  OBJECTS, caching results in CACHEDIR. */
+    Blame(ObjectStore objects, CommitGraph graph, File cacheDir) {
+        this.objects = objects;
+        this.graph = graph;
+        this.cacheDir = cacheDir;
+    }
+
+    /** Returns the UIDs of the commits to which the lines of file PATH in
+     *  the commit with UID ID are attributed, in order of line, or null
+     *  if that commit has no such file. */
+    String[] blame(String id, String path) {
+        this.path = path;
+        int head = graph.find(id);
+        if (blob(head) == null) {
+            return null;
+        }
+        pathDir = join(cacheDir, sha1(path));
+        String[] names = pathDir.list();
+        cached = new HashSet<>(Arrays.asList(names == null ? new String[0]
+                                             : names));
+        int top = version(head);
+        HashMap<Integer, int[]> parents = new HashMap<>();
+        HashMap<Integer, Integer> uses = new HashMap<>();
+        ArrayDeque<Integer> work = new ArrayDeque<>();
+        work.push(top);
+        parents.put(top, null);
+        while (!work.isEmpty()) {
+            int v = work.pop();
+            if (cached.contains(cacheName(v)) && load(v) != null) {
+                continue;
+            }
+            int[] ps = new int[2];
+            int n = 0;
+            for (int i = 0; i < 2; i += 1) {
+                int p = graph.parent(v, i);
+                if (p != CommitGraph.NONE && blob(p) != null) {
+                    int pv = version(p);
+                    ps[n++] = pv;
+                    uses.merge(pv, 1, Integer::sum);
+                    if (!parents.containsKey(pv)) {
+                        parents.put(pv, null);
+                        work.push(pv);
+                    }
+                }
+            }
+            parents.put(v, Arrays.copyOf(ps, n));
+        }
+
+        List<Integer> order = new ArrayList<>(parents.keySet());
+        order.sort(Comparator.comparingInt(graph::generation));
+        HashMap<Integer, int[]> lines = new HashMap<>();
+        HashMap<Integer, Diff.Lines> contents = new HashMap<>();
+        for (int v : order) {
+            Diff.Lines text = new Diff.Lines(objects.get(blob(v)));
+            int[] result = parents.get(v) == null ? loaded.get(v)
+                : attribute(v, text, parents.get(v), lines, contents);
+            lines.put(v, result);
+            contents.put(v, text);
+            if (parents.get(v) != null) {
+                for (int p : parents.get(v)) {
+                    if (uses.merge(p, -1, Integer::sum) == 0) {
+                        lines.remove(p);
+                        contents.remove(p);
+                    }
+                }
+            }
+        }
+
+        int[] result = lines.get(top);
+        if (!cached.contains(cacheName(head)) || loaded.get(head) == null) {
+            save(head, result);
+        }
+        String[] ids = new String[result.length];
+        for (int i = 0; i < result.length; i += 1) {
+            ids[i] = graph.id(result[i]);
+        }
+        return ids;
+    }
+
+    /** Returns the attribution of the lines TEXT of version V, whose
+     *  parents' versions are PARENTS, with attributions in LINES and
+     *  contents in CONTENTS. */
+    private int[] attribute(int v, Diff.Lines text, int[] parents,
+                            Map<Integer, int[]> lines,
+                            Map<Integer, Diff.Lines> contents) {
+        int[] result = new int[text.size()];
+        Arrays.fill(result, CommitGraph.NONE);
+        for (int p : parents) {
+            int[] from = lines.get(p);
+            int a = 0;
+            int b = 0;
+            for (Diff.Edit edit : Diff.diff(contents.get(p), text)) {
+                for (; a < edit.beginA; a += 1, b += 1) {
+                    if (result[b] == CommitGraph.NONE) {
+                        result[b] = from[a];
+                    }
+                }
+                a = edit.endA;
+                b = edit.endB;
+            }
+            for (; b < result.length; a += 1, b += 1) {
+                if (result[b] == CommitGraph.NONE) {
+                    result[b] = from[a];
+                }
+            }
+        }
+        for (int i = 0; i < result.length; i += 1) {
+            if (result[i] == CommitGraph.NONE) {
+                result[i] = v;
+            }
+        }
+        return result;
+    }
+
+    /** Returns the commit that made the version of my file in NODE: NODE
+     *  itself if it is cached or none of its parents has the same blob,
+     *  and otherwise the version of the first parent that does. */
+    private int version(int node) {
+        while (!cached.contains(cacheName(node))) {
+            String blob = blob(node);
+            int next = CommitGraph.NONE;
+            for (int i = 0; i < 2 && next == CommitGraph.NONE; i += 1) {
+                int p = graph.parent(node, i);
+                if (p != CommitGraph.NONE && blob.equals(blob(p))) {
+                    next = p;
+                }
+            }
+            if (next == CommitGraph.NONE) {
+                break;
+            }
+            node = next;
+        }
+        return node;
+    }
+
+    /** Returns the UID of the blob of my file in NODE, or null if it has
+     *  none. */
+    private String blob(int node) {
+        if (!blobs.containsKey(node)) {
+            Commit commit = objects.decode(graph.id(node),
+                                           ObjectCodec::decodeCommit);
+            blobs.put(node, Tree.lookup(objects, commit.getTree(), path));
+        }
+        return blobs.get(node);
+    }
+
+    /** Returns the name of the cache entry for my file in NODE. */
+    private String cacheName(int node) {
+        return graph.id(node);
+    }
+
+    /** Returns the attribution cached for my file in NODE, also recording
+     *  it in LOADED, or null if the entry is unusable. */
+    private int[] load(int node) {
+        if (loaded.containsKey(node)) {
+            return loaded.get(node);
+        }
+        int[] result = null;
+        File file = join(pathDir, cacheName(node));
+        try {
+            ByteBuffer in = ByteBuffer.wrap(readContents(file));
+            byte[] raw = new byte[UID_BYTES];
+            if (in.getInt() == MAGIC && in.getInt() == VERSION) {
+                in.get(raw);
+                if (bytesToUid(raw, 0, UID_BYTES).equals(blob(node))) {
+                    int[] commits = new int[in.getInt()];
+                    for (int k = 0; k < commits.length; k += 1) {
+                        in.get(raw);
+                        commits[k] = graph.find(bytesToUid(raw, 0,
+                                                           UID_BYTES));
+                    }
+                    result = new int[in.getInt()];
+                    for (int i = 0; i < result.length; i += 1) {
+                        result[i] = commits[readVarint(in)];
+                        if (result[i] == CommitGraph.NONE) {
+                            result = null;
+                            break;
+                        }
+                    }
+                }
+            }
+        } catch (IllegalArgumentException | BufferUnderflowException
+                 | IndexOutOfBoundsException excp) {
+            result = null;
+        }
+        if (result != null) {
+            file.setLastModified(System.currentTimeMillis());
+        }
+        loaded.put(node, result);
+        return result;
+    }
+
+    /** Cache LINES as the attribution of my file in NODE, then delete the
+     *  least recently used entries beyond CACHE_LIMIT. */
+    private void save(int node, int[] lines) {
+        LinkedHashMap<Integer, Integer> index = new LinkedHashMap<>();
+        for (int line : lines) {
+            index.putIfAbsent(line, index.size());
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeInt(out, MAGIC);
+        writeInt(out, VERSION);
+        out.writeBytes(uidToBytes(blob(node)));
+        writeInt(out, index.size());
+        for (int commit : index.keySet()) {
+            out.writeBytes(uidToBytes(graph.id(commit)));
+        }
+        writeInt(out, lines.length);
+        for (int line : lines) {
+            writeVarint(out, index.get(line));
+        }
+        try {
+            pathDir.mkdirs();
+            File tmp = createTempFile(pathDir, ".blame");
+            writeContents(tmp, out.toByteArray());
+            Files.move(tmp.toPath(), join(pathDir, cacheName(node)).toPath(),
+                       StandardCopyOption.ATOMIC_MOVE,
+                       StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        List<File> entries = new ArrayList<>();
+        File[] dirs = cacheDir.listFiles();
+        for (File dir : dirs == null ? new File[0] : dirs) {
+            File[] files = dir.listFiles();
+            if (files != null) {
+                entries.addAll(Arrays.asList(files));
+            }
+        }
+        if (entries.size() > CACHE_LIMIT) {
+            entries.sort(Comparator.comparingLong(File::lastModified));
+            for (File entry : entries.subList(0, entries.size()
+                                              - CACHE_LIMIT)) {
+                entry.delete();
+                entry.getParentFile().delete();
+            }
+        }
+    }
+
+    /** Append N to OUT as four bytes, most significant first. */
+    private static void writeInt(ByteArrayOutputStream out, int n) {
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            out.write(n >>> shift);
+        }
+    }
+
+    /** The object database. */
+    private final ObjectStore objects;
+    /** The commit graph. */
+    private final CommitGraph graph;
+    /** The directory of cache entries. */
+    private final File cacheDir;
+    /** The subdirectory of CACHEDIR holding the entries for PATH. */
+    private File pathDir;
+    /** The path of the file being blamed. */
+    private String path;
+    /** Names of the entries in CACHEDIR. */
+    private HashSet<String> cached;
+    /** Blob UIDs of my file (null where absent), by commit node. */
+    private final HashMap<Integer, String> blobs = new HashMap<>();
+    /** Attributions read from the cache (null where unusable), by commit
+     *  node. */
+    private final HashMap<Integer, int[]> loaded = new HashMap<>();
+}
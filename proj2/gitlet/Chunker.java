@@ -0,0 +1,80 @@
+package gitlet;
+
+import java.nio.ByteBuffer;
+
+/** Content-defined chunking of large blobs, after FastCDC (Xia et al.,
+ *  "FastCDC: a Fast and Efficient Content-Defined Chunking Approach for
+ *  Data Deduplication", USENIX ATC 2016).  Chunk boundaries are placed
+ *  where a rolling "gear" hash of the preceding bytes has certain bits
+ *  clear, so they depend only on nearby content: an edit to one region
+ *  of a file moves the boundaries around it but leaves the rest of the
+ *  chunks, and hence their UIDs, unchanged.
+ *
+ *  Chunks are between MIN_SIZE and MAX_SIZE bytes long, except that the
+ *  last may be shorter.  Following FastCDC's normalized chunking, no
+ *  boundary is sought in the first MIN_SIZE bytes, and a boundary before
+ *  AVERAGE_SIZE needs four more clear bits than one after it, which
+ *  concentrates chunk sizes near AVERAGE_SIZE.
+ *
+ *  The gear table is generated from a fixed seed, so every repository
+ *  chunks the same content the same way.
+ */
+class Chunker {
+
+    /** Smallest chunk, other than the last of a blob. */
+    static final int MIN_SIZE = 16 << 10;
+    /** Typical chunk size; a power of two. */
+    static final int AVERAGE_SIZE = 64 << 10;
+    /** Largest chunk. */
+    static final int MAX_SIZE = 256 << 10;
+
+    /** Mask of the hash bits that must be clear for a boundary before
+     *  AVERAGE_SIZE.  The gear hash shifts left, so its high bits depend on
+     *  the most bytes. */
+    private static final long MASK_SMALL =
+        -1L << (Long.SIZE - Integer.numberOfTrailingZeros(AVERAGE_SIZE) - 2);
+    /** Mask of the hash bits that must be clear for a boundary at or
+     *  after AVERAGE_SIZE. */
+    private static final long MASK_LARGE =
+        -1L << (Long.SIZE - Integer.numberOfTrailingZeros(AVERAGE_SIZE) + 2);
+
+    /** Random values added to the hash for each byte value. */
+    private static final long[] GEAR = new long[256];
+
+    static {
+        long seed = 0x6769746c65744344L;
+        for (int i = 0; i < GEAR.length; i += 1) {
+            /* SplitMix64. */
+            seed += 0x9e3779b97f4a7c15L;
+            long z = seed;
+            z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+            z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+            GEAR[i] = z ^ (z >>> 31);
+        }
+    }
+
+    /** Returns the length of the chunk of DATA that starts at absolute
+     *  position START, given that DATA ends at absolute position END. */
+    static int cut(ByteBuffer data, int start, int end) {
+        int n = Math.min(end - start, MAX_SIZE);
+        if (n <= MIN_SIZE) {
+            return n;
+        }
+        int normal = Math.min(n, AVERAGE_SIZE);
+        long hash = 0;
+        int i;
+        for (i = MIN_SIZE; i < normal; i += 1) {
+            hash = (hash << 1) + GEAR[data.get(start + i) & 0xff];
+            if ((hash & MASK_SMALL) == 0) {
+                return i + 1;
+            }
+        }
+        for (; i < n; i += 1) {
+            hash = (hash << 1) + GEAR[data.get(start + i) & 0xff];
+            if ((hash & MASK_LARGE) == 0) {
+                return i + 1;
+            }
+        }
+        return n;
+    }
+}
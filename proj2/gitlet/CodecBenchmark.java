@@ -0,0 +1,68 @@
+package gitlet;
+
+import java.nio.ByteBuffer;
+import java.util.TreeMap;
+
+/** A benchmark comparing the binary tree encoding of ObjectCodec with
+ *  Java serialization of the equivalent map of file names to blob UIDs.
+ *  Its main program may be invoked as
+ *      java gitlet.CodecBenchmark [FILES [ROUNDS]]
+ *  and builds a directory of FILES files (default 1000), then times
+ *  ROUNDS (default 2000) writes and reads of it with each method,
+ *  reporting the encoded size and the time per operation.
+ */
+public class CodecBenchmark {
+
+    /** Run the benchmark as described above, with ARGS giving FILES and
+     *  ROUNDS. */
+    public static void main(String... args) {
+        int files = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        TreeMap<String, String> blobs = new TreeMap<>();
+        TreeMap<String, Tree.Entry> entries = new TreeMap<>();
+        for (int i = 0; i < files; i += 1) {
+            String name = String.format("File%d.java", i);
+            String id = Utils.sha1("blob " + i);
+            blobs.put(name, id);
+            entries.put(name, new Tree.Entry(ObjectStore.BLOB, id));
+        }
+        Tree tree = new Tree(entries);
+
+        byte[] serialized = Utils.serialize(blobs);
+        byte[] encoded = ObjectCodec.encodeTree(tree);
+        System.out.printf("%d files: serialized %d bytes, encoded %d bytes%n",
+                          files, serialized.length, encoded.length);
+
+        for (int pass = 0; pass < 2; pass += 1) {
+            String label = pass == 0 ? "warm-up" : "measured";
+            long t0 = System.nanoTime();
+            for (int i = 0; i < rounds; i += 1) {
+                serialized = Utils.serialize(blobs);
+            }
+            long t1 = System.nanoTime();
+            for (int i = 0; i < rounds; i += 1) {
+                Utils.deserialize(serialized, TreeMap.class);
+            }
+            long t2 = System.nanoTime();
+            for (int i = 0; i < rounds; i += 1) {
+                encoded = ObjectCodec.encodeTree(tree);
+            }
+            long t3 = System.nanoTime();
+            for (int i = 0; i < rounds; i += 1) {
+                ObjectCodec.decodeTree(ByteBuffer.wrap(encoded));
+            }
+            long t4 = System.nanoTime();
+            System.out.printf("%s: serialize %.1f us, deserialize %.1f us, "
+                              + "encode %.1f us, decode %.1f us%n",
+                              label, perOp(t0, t1, rounds),
+                              perOp(t1, t2, rounds), perOp(t2, t3, rounds),
+                              perOp(t3, t4, rounds));
+        }
+    }
+
+    /** Returns the time per operation in microseconds of ROUNDS operations
+     *  run between nanosecond times START and END. */
+    private static double perOp(long start, long end, int rounds) {
+        return (end - start) / 1000.0 / rounds;
+    }
+}
@@ -1,26 +1,70 @@
 package gitlet;
 
-// TODO: any imports you need here
+import java.util.Date;
 
-import java.util.Date; // TODO: You'll likely use this in this class
-
-/** Represents a gitlet commit object.
- *  TODO: It's a good idea to give a description here of what else this Class
- *  does at a high level.
- *
- *  @author TODO
+/** Represents a gitlet commit object: a snapshot of the tracked files,
+ *  given by the UID of its root Tree, together with its log message,
+ *  time, and parent commit(s).  Commits are immutable, and are stored in
+ *  the object database under the SHA-1 UID of their encoded form (see
+ *  ObjectCodec).
  */
-public class Commit {
-    /**
-     * TODO: add instance variables here.
-     *
-     * List all instance variables of the Commit class here with a useful
-     * comment above them describing what that variable represents and how that
-     * variable is used. We've provided one example for `message`.
-     */
+public class Commit implements Dumpable {
+
+    /** A commit with log message MESSAGE, made at TIMESTAMP, whose
+     *  parents have UIDs PARENT and SECONDPARENT (either of which may be
+     *  null), and whose tracked files are those of the tree with UID
+     *  TREE. */
+    Commit(String message, Date timestamp, String parent, String secondParent,
+           String tree) {
+        this.message = message;
+        this.timestamp = timestamp;
+        this.parent = parent;
+        this.secondParent = secondParent;
+        this.tree = tree;
+    }
+
+    /** Returns my log message. */
+    String getMessage() {
+        return message;
+    }
+
+    /** Returns the time at which I was made. */
+    Date getTimestamp() {
+        return timestamp;
+    }
+
+    /** Returns the UID of my first parent, or null if I am the initial
+     *  commit. */
+    String getParent() {
+        return parent;
+    }
+
+    /** Returns the UID of my second parent, or null if I am not a merge
+     *  commit. */
+    String getSecondParent() {
+        return secondParent;
+    }
+
+    /** Returns the UID of my root tree. */
+    String getTree() {
+        return tree;
+    }
+
+    @Override
+    public void dump() {
+        System.out.printf("message: %s%ntimestamp: %s%nparents: %s %s%n"
+                          + "tree: %s%n",
+                          message, timestamp, parent, secondParent, tree);
+    }
 
     /** The message of this Commit. */
     private String message;
-
-    /* TODO: fill in the rest of this class. */
+    /** The time at which this Commit was made. */
+    private Date timestamp;
+    /** The UID of the first parent of this Commit, or null. */
+    private String parent;
+    /** The UID of the second (merged-in) parent of this Commit, or null. */
+    private String secondParent;
+    /** The UID of the root tree of this Commit. */
+    private String tree;
 }
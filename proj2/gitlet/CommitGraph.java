@@ -0,0 +1,518 @@
+package gitlet;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.PriorityQueue;
+
+import static gitlet.Utils.*;
+
+/** A compact description of the commit history: for each commit, its
+ *  parents, its generation number (1 for a commit with no parents,
+ *  otherwise one more than the largest generation of its parents), and
+ *  its time.  Ancestry and merge-base queries run over this graph without
+ *  reading any Commit objects.
+ *
+ *  Commits are identified by node numbers.  The graph is kept in two
+ *  files.  The base, memory-mapped, has the layout
+ *      MAGIC VERSION COUNT FANOUT:256*4 RECORD...
+ *  with one fixed-width RECORD per commit, in order of UID,
+ *      UID:20 PARENT1:4 PARENT2:4 GENERATION:4 TIME:8
+ *  where the parents are node numbers (-1 if absent) and FANOUT is as in
+ *  a pack index (see Pack).  Node K < COUNT is the commit in record K.
+ *  Commits added since the base was written are appended to the tail,
+ *      MAGIC VERSION TAILRECORD...
+ *  where each TAILRECORD is
+ *      UID:20 PARENT1:20 PARENT2:20 GENERATION:4 TIME:8
+ *  with absent parents written as zeroes; these are nodes COUNT, COUNT+1,
+ *  ...  Once the tail grows to TAIL_LIMIT records, it is merged into a new
+ *  base.
+ */
+class CommitGraph {
+
+    /** Node number denoting no commit. */
+    static final int NONE = -1;
+    /** Magic number at the start of the base file ("GLCG"). */
+    static final int BASE_MAGIC = 0x474c4347;
+    /** Magic number at the start of the tail file ("GLCT"). */
+    static final int TAIL_MAGIC = 0x474c4354;
+    /** Current version of both files. */
+    static final int VERSION = 1;
+    /** Most records kept in the tail before it is merged into the base. */
+    static final int TAIL_LIMIT = 512;
+
+    /** Size of the base header, including the fanout table. */
+    private static final int BASE_HEADER_SIZE = 12 + 256 * 4;
+    /** Size of a base record. */
+    private static final int BASE_RECORD_SIZE = UID_BYTES + 20;
+    /** Size of the tail header. */
+    private static final int TAIL_HEADER_SIZE = 8;
+    /** Size of a tail record. */
+    private static final int TAIL_RECORD_SIZE = 3 * UID_BYTES + 12;
+    /** Raw UID written for an absent parent in the tail. */
+    private static final byte[] NO_UID = new byte[UID_BYTES];
+
+    /** The commit graph stored in BASEFILE and TAILFILE, either or both of
+     *  which may be absent. */
+    CommitGraph(File baseFile, File tailFile) {
+        this.baseFile = baseFile;
+        this.tailFile = tailFile;
+        if (baseFile.isFile()) {
+            base = mapContents(baseFile);
+            if (base.getInt(0) != BASE_MAGIC || base.getInt(4) != VERSION) {
+                throw error("Corrupt commit graph.");
+            }
+            baseCount = base.getInt(8);
+        }
+        if (tailFile.isFile()) {
+            readTail(ByteBuffer.wrap(readContents(tailFile)));
+        }
+    }
+
+    /** Add the nodes recorded in TAIL, the contents of the tail file.  A
+     *  partial header or record left by a crash in the middle of add is
+     *  cut off the file, so that later records are appended after the
+     *  last whole one.  The commit it described cannot yet have been
+     *  referenced, since the tail is forced before any ref is written
+     *  (see Repository.flush). */
+    private void readTail(ByteBuffer tail) {
+        if (tail.limit() < TAIL_HEADER_SIZE) {
+            tailFile.delete();
+            return;
+        }
+        if (tail.getInt(0) != TAIL_MAGIC || tail.getInt(4) != VERSION) {
+            throw error("Corrupt commit graph.");
+        }
+        int end = tail.limit()
+            - (tail.limit() - TAIL_HEADER_SIZE) % TAIL_RECORD_SIZE;
+        if (end < tail.limit()) {
+            try (FileChannel channel =
+                     FileChannel.open(tailFile.toPath(),
+                                      StandardOpenOption.WRITE)) {
+                channel.truncate(end);
+                channel.force(true);
+            } catch (IOException excp) {
+                throw new IllegalArgumentException(excp.getMessage());
+            }
+        }
+        byte[] id = new byte[UID_BYTES];
+        for (int p = TAIL_HEADER_SIZE; p < end; p += TAIL_RECORD_SIZE) {
+            tail.get(p, id);
+            String uid = bytesToUid(id, 0, UID_BYTES);
+            tail.get(p + UID_BYTES, id);
+            String p1 = rawToUid(id);
+            tail.get(p + 2 * UID_BYTES, id);
+            String p2 = rawToUid(id);
+            addTail(uid, find(p1), find(p2),
+                    tail.getInt(p + 3 * UID_BYTES),
+                    tail.getLong(p + 3 * UID_BYTES + 4));
+        }
+    }
+
+    /** Returns the number of commits in the graph. */
+    int size() {
+        return baseCount + tailIds.size();
+    }
+
+    /** Returns the node number of the commit whose UID is ID, or NONE if
+     *  ID is null or not in the graph. */
+    int find(String id) {
+        if (id == null || id.length() != UID_LENGTH) {
+            return NONE;
+        }
+        Integer node = tailNodes.get(id);
+        if (node != null) {
+            return node;
+        }
+        if (baseCount == 0) {
+            return NONE;
+        }
+        byte[] raw = uidToBytes(id);
+        int first = raw[0] & 0xff;
+        int lo = first == 0 ? 0 : base.getInt(12 + (first - 1) * 4);
+        int hi = base.getInt(12 + first * 4) - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int c = compareBaseUid(mid, raw);
+            if (c < 0) {
+                lo = mid + 1;
+            } else if (c > 0) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return NONE;
+    }
+
+    /** Returns the node number of the commit whose UID begins with
+     *  PREFIX, a string of hexadecimal digits, or NONE if there is no such
+     *  commit.  The base is searched by binary search within the fanout
+     *  bucket of PREFIX and the tail by a linear scan.  Throws a
+     *  GitletException if more than one commit matches. */
+    int findPrefix(String prefix) {
+        if (prefix.isEmpty() || prefix.length() > UID_LENGTH) {
+            return NONE;
+        }
+        for (int i = 0; i < prefix.length(); i += 1) {
+            if (Character.digit(prefix.charAt(i), 16) < 0) {
+                return NONE;
+            }
+        }
+        prefix = prefix.toLowerCase();
+        if (prefix.length() == UID_LENGTH) {
+            return find(prefix);
+        }
+        int result = NONE;
+        for (int k = 0; k < tailIds.size(); k += 1) {
+            if (tailIds.get(k).startsWith(prefix)) {
+                result = unique(result, baseCount + k, prefix);
+            }
+        }
+        if (baseCount == 0) {
+            return result;
+        }
+        StringBuilder padded = new StringBuilder(prefix);
+        while (padded.length() < UID_LENGTH) {
+            padded.append('0');
+        }
+        byte[] low = uidToBytes(padded.toString());
+        int first = low[0] & 0xff;
+        int lo = first == 0 ? 0 : base.getInt(12 + (first - 1) * 4);
+        int hi = base.getInt(12 + first * 4);
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compareBaseUid(mid, low) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        for (int k = lo; k < baseCount && id(k).startsWith(prefix); k += 1) {
+            result = unique(result, k, prefix);
+        }
+        return result;
+    }
+
+    /** Returns NODE, a commit matching PREFIX, provided that FOUND, the
+     *  match found so far, is NONE.  Otherwise, throws a
+     *  GitletException. */
+    private static int unique(int found, int node, String prefix) {
+        if (found != NONE) {
+            throw error("Commit id %s is ambiguous.", prefix);
+        }
+        return node;
+    }
+
+    /** Returns the UID of NODE. */
+    String id(int node) {
+        if (node >= baseCount) {
+            return tailIds.get(node - baseCount);
+        }
+        byte[] raw = new byte[UID_BYTES];
+        base.get(recordStart(node), raw);
+        return bytesToUid(raw, 0, UID_BYTES);
+    }
+
+    /** Returns the node number of parent WHICH (0 or 1) of NODE, or
+     *  NONE. */
+    int parent(int node, int which) {
+        if (node >= baseCount) {
+            return tailParents.get(2 * (node - baseCount) + which);
+        }
+        return base.getInt(recordStart(node) + UID_BYTES + 4 * which);
+    }
+
+    /** Returns the generation number of NODE. */
+    int generation(int node) {
+        if (node >= baseCount) {
+            return tailGenerations.get(node - baseCount);
+        }
+        return base.getInt(recordStart(node) + UID_BYTES + 8);
+    }
+
+    /** Returns the time of NODE, in milliseconds since the epoch. */
+    long time(int node) {
+        if (node >= baseCount) {
+            return tailTimes.get(node - baseCount);
+        }
+        return base.getLong(recordStart(node) + UID_BYTES + 12);
+    }
+
+    /** Adds the commit with UID ID, parents PARENT1 and PARENT2 (UIDs or
+     *  null), and time TIME to the graph, appending it to the tail file.
+     *  The parents must already be in the graph.  Does nothing if ID is
+     *  already present. */
+    void add(String id, String parent1, String parent2, long time) {
+        if (find(id) != NONE) {
+            return;
+        }
+        int p1 = find(parent1);
+        int p2 = find(parent2);
+        if ((parent1 != null && p1 == NONE)
+            || (parent2 != null && p2 == NONE)) {
+            throw error("Commit graph is missing a parent of %s.", id);
+        }
+        int generation = 1 + Math.max(p1 == NONE ? 0 : generation(p1),
+                                      p2 == NONE ? 0 : generation(p2));
+        addTail(id, p1, p2, generation, time);
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            if (!tailFile.isFile()) {
+                out.writeInt(TAIL_MAGIC);
+                out.writeInt(VERSION);
+            }
+            out.write(uidToBytes(id));
+            out.write(parent1 == null ? NO_UID : uidToBytes(parent1));
+            out.write(parent2 == null ? NO_UID : uidToBytes(parent2));
+            out.writeInt(generation);
+            out.writeLong(time);
+            try (OutputStream file =
+                     Files.newOutputStream(tailFile.toPath(),
+                                           StandardOpenOption.CREATE,
+                                           StandardOpenOption.APPEND)) {
+                file.write(bytes.toByteArray());
+            }
+            unsynced = true;
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        if (tailIds.size() >= TAIL_LIMIT) {
+            rewrite();
+        }
+    }
+
+    /** Returns true iff ANCESTOR is NODE or an ancestor of NODE.  The
+     *  search does not descend below the generation of ANCESTOR. */
+    boolean isAncestor(int ancestor, int node) {
+        int floor = generation(ancestor);
+        ArrayList<Integer> work = new ArrayList<>();
+        boolean[] seen = new boolean[size()];
+        work.add(node);
+        while (!work.isEmpty()) {
+            int n = work.remove(work.size() - 1);
+            if (n == ancestor) {
+                return true;
+            }
+            for (int i = 0; i < 2; i += 1) {
+                int p = parent(n, i);
+                if (p != NONE && !seen[p] && generation(p) >= floor) {
+                    seen[p] = true;
+                    work.add(p);
+                }
+            }
+        }
+        return false;
+    }
+
+    /** Returns a best common ancestor of nodes A and B (one of greatest
+     *  generation), or NONE if they have none.  Ancestors are visited in
+     *  order of decreasing generation, so a node's marks are complete
+     *  when it is visited and the first node found reachable from both A
+     *  and B is the answer. */
+    int mergeBase(int a, int b) {
+        byte[] marks = new byte[size()];
+        PriorityQueue<Integer> queue = new PriorityQueue<>(
+            (x, y) -> Integer.compare(generation(y), generation(x)));
+        marks[a] |= 1;
+        marks[b] |= 2;
+        queue.add(a);
+        if (b != a) {
+            queue.add(b);
+        }
+        while (!queue.isEmpty()) {
+            int n = queue.poll();
+            if (marks[n] == 3) {
+                return n;
+            }
+            for (int i = 0; i < 2; i += 1) {
+                int p = parent(n, i);
+                if (p != NONE && (marks[p] | marks[n]) != marks[p]) {
+                    if (marks[p] == 0) {
+                        queue.add(p);
+                    }
+                    marks[p] |= marks[n];
+                }
+            }
+        }
+        return NONE;
+    }
+
+    /** Returns the set of the node numbers of NODE and its ancestors. */
+    Bitmap ancestors(int node) {
+        Bitmap result = new Bitmap();
+        ArrayList<Integer> work = new ArrayList<>();
+        result.add(node);
+        work.add(node);
+        while (!work.isEmpty()) {
+            int n = work.remove(work.size() - 1);
+            for (int i = 0; i < 2; i += 1) {
+                int p = parent(n, i);
+                if (p != NONE && !result.contains(p)) {
+                    result.add(p);
+                    work.add(p);
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Force to disk the nodes added to the tail since the last call.
+     *  Called before any reference to their commits is made durable. */
+    void sync() {
+        if (unsynced) {
+            force(tailFile);
+            force(tailFile.getParentFile());
+            unsynced = false;
+        }
+    }
+
+    /** Rewrite the whole graph as a new base, emptying the tail. */
+    void rewrite() {
+        retain(null);
+    }
+
+    /** Rewrite the graph as a new base holding only the nodes in NODES,
+     *  or all nodes if NODES is null, emptying the tail.  NODES must
+     *  include the parents of each of its members.  Node numbers are
+     *  reassigned. */
+    void retain(Bitmap nodes) {
+        Integer[] order;
+        if (nodes == null) {
+            order = new Integer[size()];
+            for (int k = 0; k < order.length; k += 1) {
+                order[k] = k;
+            }
+        } else {
+            order = new Integer[nodes.cardinality()];
+            int[] n = { 0 };
+            nodes.forEach(k -> order[n[0]++] = k);
+        }
+        int n = order.length;
+        String[] ids = new String[size()];
+        for (int k : order) {
+            ids[k] = id(k);
+        }
+        Arrays.sort(order, (x, y) -> ids[x].compareTo(ids[y]));
+        int[] position = new int[size()];
+        for (int k = 0; k < n; k += 1) {
+            position[order[k]] = k;
+        }
+        int[] fanout = new int[256];
+        for (int k : order) {
+            fanout[Integer.parseInt(ids[k].substring(0, 2), 16)] += 1;
+        }
+        for (int i = 1; i < 256; i += 1) {
+            fanout[i] += fanout[i - 1];
+        }
+        try {
+            File tmp = createTempFile(baseFile.getParentFile(), ".graph");
+            try (DataOutputStream out = new DataOutputStream(
+                     new BufferedOutputStream(
+                         Files.newOutputStream(tmp.toPath())))) {
+                out.writeInt(BASE_MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(n);
+                for (int f : fanout) {
+                    out.writeInt(f);
+                }
+                for (int k : order) {
+                    out.write(uidToBytes(ids[k]));
+                    for (int i = 0; i < 2; i += 1) {
+                        int p = parent(k, i);
+                        out.writeInt(p == NONE ? NONE : position[p]);
+                    }
+                    out.writeInt(generation(k));
+                    out.writeLong(time(k));
+                }
+            }
+            force(tmp);
+            Files.move(tmp.toPath(), baseFile.toPath(),
+                       StandardCopyOption.ATOMIC_MOVE,
+                       StandardCopyOption.REPLACE_EXISTING);
+            force(baseFile.getParentFile());
+            tailFile.delete();
+            unsynced = false;
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        base = mapContents(baseFile);
+        baseCount = n;
+        tailIds.clear();
+        tailNodes.clear();
+        tailParents.clear();
+        tailGenerations.clear();
+        tailTimes.clear();
+    }
+
+    /** Record a tail node for commit ID with parent nodes P1 and P2,
+     *  generation GENERATION, and time TIME. */
+    private void addTail(String id, int p1, int p2, int generation,
+                         long time) {
+        tailNodes.put(id, baseCount + tailIds.size());
+        tailIds.add(id);
+        tailParents.add(p1);
+        tailParents.add(p2);
+        tailGenerations.add(generation);
+        tailTimes.add(time);
+    }
+
+    /** Returns the position of the base record for NODE. */
+    private int recordStart(int node) {
+        return BASE_HEADER_SIZE + node * BASE_RECORD_SIZE;
+    }
+
+    /** Compares the UID of base record K with the raw UID ID. */
+    private int compareBaseUid(int k, byte[] id) {
+        int start = recordStart(k);
+        for (int i = 0; i < UID_BYTES; i += 1) {
+            int c = (base.get(start + i) & 0xff) - (id[i] & 0xff);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return 0;
+    }
+
+    /** Returns the hexadecimal form of raw UID ID, or null if it is all
+     *  zeroes. */
+    private static String rawToUid(byte[] id) {
+        return Arrays.equals(id, NO_UID) ? null
+            : bytesToUid(id, 0, UID_BYTES);
+    }
+
+    /** File holding the base. */
+    private final File baseFile;
+    /** File holding the tail. */
+    private final File tailFile;
+    /** Mapped contents of the base, or null if there is none. */
+    private MappedByteBuffer base;
+    /** Number of records in the base. */
+    private int baseCount;
+    /** UIDs of the tail nodes, in order. */
+    private final ArrayList<String> tailIds = new ArrayList<>();
+    /** Node numbers of the tail nodes, by UID. */
+    private final HashMap<String, Integer> tailNodes = new HashMap<>();
+    /** Parent nodes of the tail nodes, two per node. */
+    private final ArrayList<Integer> tailParents = new ArrayList<>();
+    /** Generation numbers of the tail nodes. */
+    private final ArrayList<Integer> tailGenerations = new ArrayList<>();
+    /** Times of the tail nodes. */
+    private final ArrayList<Long> tailTimes = new ArrayList<>();
+    /** True iff nodes have been appended to the tail file since it was
+     *  last forced to disk. */
+    private boolean unsynced;
+}
@@ -0,0 +1,154 @@
+package gitlet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.function.BiConsumer;
+
+import static gitlet.Utils.*;
+
+/** A log of every commit ever made in a repository, so that global-log
+ *  is a single sequential read of one file rather than a read of every
+ *  commit object.
+ *
+ *  The log is an append-only file of the form
+ *      MAGIC VERSION RECORD...
+ *  where each RECORD is
+ *      UID:20 PARENT:20 SECONDPARENT:20 TREE:20 TIME:8 LENGTH:4
+ *      MESSAGE:LENGTH LENGTH:4
+ *  in the order in which the commits were made, with absent parents
+ *  written as twenty zero bytes, TIME in milliseconds since the epoch,
+ *  and MESSAGE in UTF-8.  The copy of LENGTH at the end of each record
+ *  lets the memory-mapped log be walked backwards, newest commit first.
+ */
+class CommitLog {
+
+    /** Magic number at the start of the log ("GLCL"). */
+    static final int MAGIC = 0x474c434c;
+    /** Current version of the log format. */
+    static final int VERSION = 1;
+
+    /** Size of the header. */
+    private static final int HEADER_SIZE = 8;
+    /** Size of the fixed part of a record, before MESSAGE. */
+    private static final int FIXED_SIZE = 4 * UID_BYTES + 8 + 4;
+    /** The raw form of an absent parent. */
+    private static final byte[] NO_PARENT = new byte[UID_BYTES];
+
+    /** The log stored in FILE. */
+    CommitLog(File file) {
+        this.file = file;
+    }
+
+    /** Returns true iff my file exists. */
+    boolean exists() {
+        return file.isFile();
+    }
+
+    /** Deletes my file. */
+    void clear() {
+        file.delete();
+    }
+
+    /** Records COMMIT, whose UID is ID. */
+    void add(String id, Commit commit) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            if (!file.isFile()) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+            }
+            byte[] message =
+                commit.getMessage().getBytes(StandardCharsets.UTF_8);
+            out.write(uidToBytes(id));
+            out.write(rawParent(commit.getParent()));
+            out.write(rawParent(commit.getSecondParent()));
+            out.write(uidToBytes(commit.getTree()));
+            out.writeLong(commit.getTimestamp().getTime());
+            out.writeInt(message.length);
+            out.write(message);
+            out.writeInt(message.length);
+            try (OutputStream data =
+                     Files.newOutputStream(file.toPath(),
+                                           StandardOpenOption.CREATE,
+                                           StandardOpenOption.APPEND)) {
+                data.write(bytes.toByteArray());
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Calls VISITOR on the UID and contents of each recorded commit,
+     *  newest first.  If the log is not well formed, as when a crash cut
+     *  short the last append, throws a GitletException without visiting
+     *  any commit. */
+    void forEachNewestFirst(BiConsumer<String, Commit> visitor) {
+        ByteBuffer data = mapContents(file);
+        if (data.limit() < HEADER_SIZE || data.getInt(0) != MAGIC
+            || data.getInt(4) != VERSION) {
+            throw error("Corrupt commit log.");
+        }
+        int[] starts = new int[16];
+        int n = 0;
+        for (int end = data.limit(); end > HEADER_SIZE; end = starts[n - 1]) {
+            int length = end - 4 >= HEADER_SIZE ? data.getInt(end - 4) : -1;
+            int start = end - 4 - length - FIXED_SIZE;
+            if (length < 0 || start < HEADER_SIZE
+                || data.getInt(start + FIXED_SIZE - 4) != length) {
+                throw error("Corrupt commit log.");
+            }
+            if (n == starts.length) {
+                starts = Arrays.copyOf(starts, 2 * n);
+            }
+            starts[n] = start;
+            n += 1;
+        }
+        for (int i = 0; i < n; i += 1) {
+            int start = starts[i];
+            byte[] message = new byte[data.getInt(start + FIXED_SIZE - 4)];
+            data.get(start + FIXED_SIZE, message);
+            Commit commit =
+                new Commit(new String(message, StandardCharsets.UTF_8),
+                           new Date(data.getLong(start + 4 * UID_BYTES)),
+                           parentAt(data, start + UID_BYTES),
+                           parentAt(data, start + 2 * UID_BYTES),
+                           uidAt(data, start + 3 * UID_BYTES));
+            visitor.accept(uidAt(data, start), commit);
+        }
+    }
+
+    /** Returns the raw form of the parent UID ID, which may be null. */
+    private static byte[] rawParent(String id) {
+        return id == null ? NO_PARENT : uidToBytes(id);
+    }
+
+    /** Returns the hexadecimal form of the raw UID at position P of
+     *  DATA. */
+    private static String uidAt(ByteBuffer data, int p) {
+        byte[] id = new byte[UID_BYTES];
+        data.get(p, id);
+        return bytesToUid(id, 0, UID_BYTES);
+    }
+
+    /** Returns the parent UID at position P of DATA, or null if it is
+     *  absent. */
+    private static String parentAt(ByteBuffer data, int p) {
+        byte[] id = new byte[UID_BYTES];
+        data.get(p, id);
+        return Arrays.equals(id, NO_PARENT) ? null
+            : bytesToUid(id, 0, UID_BYTES);
+    }
+
+    /** The file holding the log. */
+    private final File file;
+}
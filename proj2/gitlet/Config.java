@@ -0,0 +1,91 @@
+package gitlet;
+
+import java.io.File;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static gitlet.Utils.*;
+
+/** The settings of a Gitlet repository, kept in a text file of lines of
+ *  the form
+ *      NAME=VALUE
+ *  in order of NAME.  Only the settings in DEFAULTS may be given; any
+ *  not present in the file have their default values.  Updates go
+ *  through the repository's journal (see Journal).
+ *
+ *  The settings are
+ *      compression -- the Deflate level, from 0 (no compression) to 9
+ *          (smallest), with which new objects are written; -1 selects
+ *          Deflate's default level.
+ */
+class Config {
+
+    /** The settings and their default values. */
+    static final Map<String, String> DEFAULTS = Map.of("compression", "-1");
+
+    /** The settings stored in FILE, read through JOURNAL. */
+    Config(Journal journal, File file) {
+        this.journal = journal;
+        this.file = file;
+        if (journal.exists(file)) {
+            for (String line : journal.readString(file).split("\n")) {
+                int eq = line.indexOf('=');
+                if (eq > 0) {
+                    values.put(line.substring(0, eq), line.substring(eq + 1));
+                }
+            }
+        }
+    }
+
+    /** Returns the value of setting NAME. */
+    String get(String name) {
+        check(name);
+        return values.getOrDefault(name, DEFAULTS.get(name));
+    }
+
+    /** Returns the value of setting NAME as an integer. */
+    int getInt(String name) {
+        try {
+            return Integer.parseInt(get(name));
+        } catch (NumberFormatException excp) {
+            throw error("Invalid value for %s.", name);
+        }
+    }
+
+    /** Sets setting NAME to VALUE, scheduling my file to be rewritten. */
+    void set(String name, String value) {
+        check(name);
+        if (name.equals("compression")) {
+            int level;
+            try {
+                level = Integer.parseInt(value);
+            } catch (NumberFormatException excp) {
+                level = -2;
+            }
+            if (level < -1 || level > 9) {
+                throw error("Compression level must be from -1 to 9.");
+            }
+        }
+        values.put(name, value);
+        StringBuilder contents = new StringBuilder();
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            contents.append(entry.getKey()).append('=')
+                .append(entry.getValue()).append('\n');
+        }
+        journal.write(file, contents.toString());
+    }
+
+    /** Throws a GitletException unless NAME is a setting. */
+    private static void check(String name) {
+        if (!DEFAULTS.containsKey(name)) {
+            throw error("No setting with that name exists.");
+        }
+    }
+
+    /** The journal through which my file is read and written. */
+    private final Journal journal;
+    /** The file holding my settings. */
+    private final File file;
+    /** The settings present in my file. */
+    private final TreeMap<String, String> values = new TreeMap<>();
+}
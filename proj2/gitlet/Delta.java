@@ -0,0 +1,149 @@
+package gitlet;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+
+import static gitlet.Utils.*;
+
+/** Delta encoding of one byte sequence (the target) against another (the
+ *  base).  A delta has the form
+ *      BASELENGTH TARGETLENGTH INSTRUCTION...
+ *  where the lengths are varints (seven bits per byte, least significant
+ *  first, high bit set on all but the last byte) and each INSTRUCTION is
+ *  either
+ *      COPY:  0x80 OFFSET LENGTH  -- copy LENGTH bytes of the base
+ *                                    starting at OFFSET (both varints), or
+ *      INSERT: N BYTE...           -- insert the N (1..127) bytes that
+ *                                    follow.
+ */
+class Delta {
+
+    /** Length of the blocks of the base that are indexed for matching. */
+    private static final int BLOCK = 16;
+    /** Longest run of literal bytes in one INSERT instruction. */
+    private static final int MAX_INSERT = 127;
+    /** Instruction byte marking a COPY. */
+    private static final int COPY = 0x80;
+    /** Multiplier of the rolling block hash. */
+    private static final int HASH_BASE = 31;
+    /** HASH_BASE ** (BLOCK - 1), used to roll the oldest byte out of a
+     *  block hash. */
+    private static final int HASH_POWER;
+
+    static {
+        int p = 1;
+        for (int i = 1; i < BLOCK; i += 1) {
+            p *= HASH_BASE;
+        }
+        HASH_POWER = p;
+    }
+
+    /** Returns a delta that transforms BASE into TARGET. */
+    static byte[] create(byte[] base, byte[] target) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeVarint(out, base.length);
+        writeVarint(out, target.length);
+
+        HashMap<Integer, Integer> blocks = new HashMap<>();
+        for (int i = 0; i + BLOCK <= base.length; i += BLOCK) {
+            blocks.putIfAbsent(hash(base, i), i);
+        }
+
+        int pending = 0;
+        int t = 0;
+        int h = target.length >= BLOCK ? hash(target, 0) : 0;
+        while (t + BLOCK <= target.length) {
+            Integer b = blocks.get(h);
+            if (b == null || !regionsEqual(base, b, target, t, BLOCK)) {
+                if (t + BLOCK < target.length) {
+                    h = (h - target[t] * HASH_POWER) * HASH_BASE
+                        + target[t + BLOCK];
+                }
+                t += 1;
+                continue;
+            }
+            int start = b;
+            int tstart = t;
+            while (start > 0 && tstart > pending
+                   && base[start - 1] == target[tstart - 1]) {
+                start -= 1;
+                tstart -= 1;
+            }
+            int end = b + BLOCK;
+            int tend = t + BLOCK;
+            while (end < base.length && tend < target.length
+                   && base[end] == target[tend]) {
+                end += 1;
+                tend += 1;
+            }
+            writeInserts(out, target, pending, tstart);
+            out.write(COPY);
+            writeVarint(out, start);
+            writeVarint(out, end - start);
+            pending = t = tend;
+            if (t + BLOCK <= target.length) {
+                h = hash(target, t);
+            }
+        }
+        writeInserts(out, target, pending, target.length);
+        return out.toByteArray();
+    }
+
+    /** Returns the result of applying DELTA to BASE. */
+    static byte[] apply(byte[] base, byte[] delta) {
+        ByteBuffer in = ByteBuffer.wrap(delta);
+        if (readVarint(in) != base.length) {
+            throw error("Delta does not match its base.");
+        }
+        byte[] result = new byte[readVarint(in)];
+        int r = 0;
+        while (in.hasRemaining()) {
+            int op = in.get() & 0xff;
+            if (op == COPY) {
+                int offset = readVarint(in);
+                int length = readVarint(in);
+                System.arraycopy(base, offset, result, r, length);
+                r += length;
+            } else {
+                in.get(result, r, op);
+                r += op;
+            }
+        }
+        if (r != result.length) {
+            throw error("Corrupt delta.");
+        }
+        return result;
+    }
+
+    /** Write INSERT instructions for the bytes of TARGET in [FROM .. TO). */
+    private static void writeInserts(ByteArrayOutputStream out, byte[] target,
+                                     int from, int to) {
+        while (from < to) {
+            int n = Math.min(MAX_INSERT, to - from);
+            out.write(n);
+            out.write(target, from, n);
+            from += n;
+        }
+    }
+
+    /** Returns a hash of the BLOCK bytes of DATA starting at START. */
+    private static int hash(byte[] data, int start) {
+        int h = 0;
+        for (int i = start; i < start + BLOCK; i += 1) {
+            h = HASH_BASE * h + data[i];
+        }
+        return h;
+    }
+
+    /** Returns true iff the LEN bytes of A at I equal those of B at J. */
+    private static boolean regionsEqual(byte[] a, int i, byte[] b, int j,
+                                        int len) {
+        for (int k = 0; k < len; k += 1) {
+            if (a[i + k] != b[j + k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
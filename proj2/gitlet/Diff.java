@@ -0,0 +1,670 @@
+package gitlet;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/** Line-oriented differencing and three-way merging of file contents.
+ *
+ *  Files are split into lines by recording the offsets at which lines
+ *  begin (see Lines), so that no line is copied out of its file.  Before
+ *  comparison, every line of both files is interned as an integer, equal
+ *  lines receiving equal integers, and the rest of the work compares
+ *  integers only.
+ *
+ *  The differences between two sequences are found region by region,
+ *  starting from the whole of both and first trimming any common prefix
+ *  and suffix.  A region in which some lines occur exactly once on each
+ *  side is split at the longest increasing sequence of such lines (as in
+ *  patience diff).  Otherwise it is split around a longest run of
+ *  matching lines whose least frequent line occurs least often (as in
+ *  histogram diff), and if every common line is too frequent for that to
+ *  be worthwhile, at the midpoint of a shortest edit script found by
+ *  Myers' O(ND) algorithm, or, if that search runs long, around the parts
+ *  of the region it did settle.  Regions are kept on an explicit stack,
+ *  so deeply nested splits cannot overflow the call stack.
+ */
+class Diff {
+
+    /** Lines of context around each hunk of unified output. */
+    static final int CONTEXT = 3;
+    /** Greatest number of occurrences of a line for it to be used to
+     *  split a region in the histogram step. */
+    private static final int MAX_OCCURRENCES = 64;
+    /** Number of steps the Myers search in splitMiddle takes before it
+     *  settles for a non-minimal split. */
+    private static final int MAX_COST = 32;
+
+    /** The lines of a file's contents. */
+    static class Lines {
+        /** The lines of DATA.  Each line includes its terminating newline,
+         *  if any; only the last line may lack one. */
+        Lines(byte[] data) {
+            this.data = data;
+            int n = 0;
+            for (byte c : data) {
+                if (c == '\n') {
+                    n += 1;
+                }
+            }
+            boolean partial = data.length > 0
+                && data[data.length - 1] != '\n';
+            starts = new int[n + (partial ? 1 : 0) + 1];
+            int k = 1;
+            for (int i = 0; i < data.length; i += 1) {
+                if (data[i] == '\n') {
+                    starts[k] = i + 1;
+                    k += 1;
+                }
+            }
+            starts[starts.length - 1] = data.length;
+        }
+
+        /** Returns the number of lines. */
+        int size() {
+            return starts.length - 1;
+        }
+
+        /** Returns true iff line K ends with a newline. */
+        boolean terminated(int k) {
+            return data[starts[k + 1] - 1] == '\n';
+        }
+
+        /** Append line K to OUT, adding a newline if it lacks one. */
+        void writeLine(ByteArrayOutputStream out, int k) {
+            out.write(data, starts[k], starts[k + 1] - starts[k]);
+            if (!terminated(k)) {
+                out.write('\n');
+            }
+        }
+
+        /** Append lines [FROM, TO) to OUT, as writeLine. */
+        void writeLines(ByteArrayOutputStream out, int from, int to) {
+            for (int k = from; k < to; k += 1) {
+                writeLine(out, k);
+            }
+        }
+
+        /** The contents. */
+        final byte[] data;
+        /** The offset of the start of each line, followed by the length of
+         *  DATA. */
+        final int[] starts;
+    }
+
+    /** A change between two sequences: elements [beginA, endA) of the
+     *  first replaced by elements [beginB, endB) of the second. */
+    static class Edit {
+        /** The change of elements [BEGINA, ENDA) to [BEGINB, ENDB). */
+        Edit(int beginA, int endA, int beginB, int endB) {
+            this.beginA = beginA;
+            this.endA = endA;
+            this.beginB = beginB;
+            this.endB = endB;
+        }
+
+        /** Bounds of the change in the first sequence. */
+        final int beginA, endA;
+        /** Bounds of the change in the second sequence. */
+        final int beginB, endB;
+    }
+
+    /** Returns the changes turning the lines of A into those of B, in
+     *  order.  Lines common to the starts and ends of A and B are found
+     *  by comparing bytes, and only those between are interned. */
+    static List<Edit> diff(Lines a, Lines b) {
+        int pre = commonPrefix(a, b);
+        int n = a.size();
+        int m = b.size();
+        while (pre < n && pre < m
+               && Arrays.equals(a.data, a.starts[n - 1], a.starts[n],
+                                b.data, b.starts[m - 1], b.starts[m])) {
+            n -= 1;
+            m -= 1;
+        }
+        Interner interner = new Interner(n + m - 2 * pre);
+        int[] x = interner.intern(a, pre, n);
+        int[] y = interner.intern(b, pre, m);
+        List<Edit> edits = new Diff(x, y, interner.size()).compute();
+        if (pre > 0) {
+            edits.replaceAll(e -> new Edit(e.beginA + pre, e.endA + pre,
+                                           e.beginB + pre, e.endB + pre));
+        }
+        return edits;
+    }
+
+    /** Returns the number of lines, each ending in a newline, with which
+     *  both A and B begin. */
+    private static int commonPrefix(Lines a, Lines b) {
+        int differ = Arrays.mismatch(a.data, b.data);
+        if (differ < 0) {
+            differ = a.data.length;
+        }
+        int k = Arrays.binarySearch(a.starts, differ);
+        k = k >= 0 ? k : -k - 2;
+        if (k > 0 && !a.terminated(k - 1)) {
+            k -= 1;
+        }
+        return k;
+    }
+
+    /** Appends to OUT the unified diff, with CONTEXT lines of context,
+     *  turning A, labeled NAMEA, into B, labeled NAMEB.  Nothing is
+     *  appended if A and B have the same lines. */
+    static void unified(Lines a, String nameA, Lines b, String nameB,
+                        ByteArrayOutputStream out) {
+        List<Edit> edits = diff(a, b);
+        if (edits.isEmpty()) {
+            return;
+        }
+        write(out, "--- " + nameA + "\n+++ " + nameB + "\n");
+        for (int i = 0; i < edits.size(); ) {
+            int j = i;
+            while (j + 1 < edits.size()
+                   && edits.get(j + 1).beginA - edits.get(j).endA
+                      <= 2 * CONTEXT) {
+                j += 1;
+            }
+            Edit first = edits.get(i), last = edits.get(j);
+            int startA = Math.max(0, first.beginA - CONTEXT);
+            int startB = first.beginB - (first.beginA - startA);
+            int endA = Math.min(a.size(), last.endA + CONTEXT);
+            int endB = last.endB + (endA - last.endA);
+            write(out, "@@ -" + range(startA, endA) + " +"
+                  + range(startB, endB) + " @@\n");
+            int pos = startA;
+            for (int k = i; k <= j; k += 1) {
+                Edit e = edits.get(k);
+                writeHunkLines(out, a, ' ', pos, e.beginA);
+                writeHunkLines(out, a, '-', e.beginA, e.endA);
+                writeHunkLines(out, b, '+', e.beginB, e.endB);
+                pos = e.endA;
+            }
+            writeHunkLines(out, a, ' ', pos, endA);
+            i = j + 1;
+        }
+    }
+
+    /** Appends to OUT the three-way merge of OURS and THEIRS, two
+     *  revisions of BASE, returning true iff they conflict.  Lines changed
+     *  on only one side take that side's version; overlapping or adjacent
+     *  changes that differ are written between conflict markers, ours
+     *  first. */
+    static boolean merge(Lines base, Lines ours, Lines theirs,
+                         ByteArrayOutputStream out) {
+        Interner interner =
+            new Interner(base.size() + ours.size() + theirs.size());
+        int[] o = interner.intern(base);
+        int[] a = interner.intern(ours);
+        int[] b = interner.intern(theirs);
+        List<Edit> ea = new Diff(o, a, interner.size()).compute();
+        List<Edit> eb = new Diff(o, b, interner.size()).compute();
+
+        boolean conflict = false;
+        int pos = 0, i = 0, j = 0;
+        while (i < ea.size() || j < eb.size()) {
+            boolean fromA = j == eb.size()
+                || (i < ea.size() && ea.get(i).beginA <= eb.get(j).beginA);
+            int lo = fromA ? ea.get(i).beginA : eb.get(j).beginA;
+            int hi = lo;
+            int i0 = i, j0 = j;
+            while (true) {
+                if (i < ea.size() && ea.get(i).beginA <= hi) {
+                    hi = Math.max(hi, ea.get(i).endA);
+                    i += 1;
+                } else if (j < eb.size() && eb.get(j).beginA <= hi) {
+                    hi = Math.max(hi, eb.get(j).endA);
+                    j += 1;
+                } else {
+                    break;
+                }
+            }
+            base.writeLines(out, pos, lo);
+            pos = hi;
+            int aLo = side(ea, i0, i, lo, true), aHi = side(ea, i0, i, hi,
+                                                            false);
+            int bLo = side(eb, j0, j, lo, true), bHi = side(eb, j0, j, hi,
+                                                            false);
+            if (j == j0) {
+                ours.writeLines(out, aLo, aHi);
+            } else if (i == i0 || Arrays.equals(a, aLo, aHi, b, bLo, bHi)) {
+                theirs.writeLines(out, bLo, bHi);
+            } else {
+                conflict = true;
+                write(out, "<<<<<<< HEAD\n");
+                ours.writeLines(out, aLo, aHi);
+                write(out, "=======\n");
+                theirs.writeLines(out, bLo, bHi);
+                write(out, ">>>>>>>\n");
+            }
+        }
+        base.writeLines(out, pos, base.size());
+        return conflict;
+    }
+
+    /** Returns the position in the revised sequence corresponding to
+     *  position P of the original, where the edits EDITS[FROM, TO) are
+     *  those in the region containing P.  If LOW, P is the start of that
+     *  region, otherwise its end. */
+    private static int side(List<Edit> edits, int from, int to, int p,
+                            boolean low) {
+        if (from == to) {
+            return p;
+        } else if (low) {
+            Edit e = edits.get(from);
+            return e.beginB - (e.beginA - p);
+        } else {
+            Edit e = edits.get(to - 1);
+            return e.endB + (p - e.endA);
+        }
+    }
+
+    /** Returns the unified-diff form of the line range [FROM, TO). */
+    private static String range(int from, int to) {
+        int count = to - from;
+        if (count == 1) {
+            return Integer.toString(from + 1);
+        }
+        return (count == 0 ? from : from + 1) + "," + count;
+    }
+
+    /** Append lines [FROM, TO) of LINES to OUT, each preceded by
+     *  MARK. */
+    private static void writeHunkLines(ByteArrayOutputStream out,
+                                       Lines lines, char mark, int from,
+                                       int to) {
+        for (int k = from; k < to; k += 1) {
+            out.write(mark);
+            lines.writeLine(out, k);
+            if (!lines.terminated(k)) {
+                write(out, "\\ No newline at end of file\n");
+            }
+        }
+    }
+
+    /** Append the UTF-8 encoding of S to OUT. */
+    private static void write(ByteArrayOutputStream out, String s) {
+        out.writeBytes(s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** A differencer of the sequences A and B of line numbers, each less
+     *  than SYMBOLS. */
+    private Diff(int[] a, int[] b, int symbols) {
+        this.a = a;
+        this.b = b;
+        countA = new int[symbols];
+        countB = new int[symbols];
+        firstA = new int[symbols];
+        Arrays.fill(firstA, -1);
+        nextA = new int[a.length];
+        tails = new int[Math.min(a.length, b.length) + 1];
+        link = new int[b.length];
+        posA = new int[b.length];
+        int max = (a.length + b.length + 1) / 2;
+        forward = new int[2 * max + 2];
+        backward = new int[2 * max + 2];
+    }
+
+    /** Returns the changes turning A into B, in order.  Each region
+     *  awaiting work is an array { ALO, AHI, BLO, BHI, FAILED } standing
+     *  for A[ALO, AHI) and B[BLO, BHI), where FAILED is 0 or the size of a
+     *  region containing it in which splitUnique and splitRare found
+     *  nothing.  They are not tried again until the region has shrunk to
+     *  half that size, so that a large region whittled away by splitMiddle
+     *  is not scanned again for every few lines it loses. */
+    private List<Edit> compute() {
+        ArrayList<int[]> work = new ArrayList<>();
+        work.add(new int[] { 0, a.length, 0, b.length, 0 });
+        while (!work.isEmpty()) {
+            int[] r = work.remove(work.size() - 1);
+            int aLo = r[0], aHi = r[1], bLo = r[2], bHi = r[3];
+            while (aLo < aHi && bLo < bHi && a[aLo] == b[bLo]) {
+                aLo += 1;
+                bLo += 1;
+            }
+            while (aLo < aHi && bLo < bHi && a[aHi - 1] == b[bHi - 1]) {
+                aHi -= 1;
+                bHi -= 1;
+            }
+            if (aLo == aHi || bLo == bHi) {
+                if (aLo < aHi || bLo < bHi) {
+                    edits.add(new Edit(aLo, aHi, bLo, bHi));
+                }
+            } else {
+                int size = aHi - aLo + bHi - bLo;
+                if (2 * size > r[4] && r[4] > 0) {
+                    splitMiddle(aLo, aHi, bLo, bHi, r[4], work);
+                } else if (!splitUnique(aLo, aHi, bLo, bHi, work)
+                           && !splitRare(aLo, aHi, bLo, bHi, work)) {
+                    splitMiddle(aLo, aHi, bLo, bHi, size, work);
+                }
+            }
+        }
+        edits.sort((x, y) -> Integer.compare(x.beginA, y.beginA));
+        return edits;
+    }
+
+    /** If some lines occur exactly once in each of A[ALO, AHI) and
+     *  B[BLO, BHI), push onto WORK the regions between the members of the
+     *  longest sequence of such lines appearing in the same order on both
+     *  sides, and return true.  Otherwise return false. */
+    private boolean splitUnique(int aLo, int aHi, int bLo, int bHi,
+                                List<int[]> work) {
+        for (int i = aLo; i < aHi; i += 1) {
+            countA[a[i]] += 1;
+            firstA[a[i]] = i;
+        }
+        for (int j = bLo; j < bHi; j += 1) {
+            countB[b[j]] += 1;
+        }
+        int piles = 0;
+        for (int j = bLo; j < bHi; j += 1) {
+            int s = b[j];
+            if (countA[s] != 1 || countB[s] != 1) {
+                continue;
+            }
+            int i = firstA[s];
+            int lo = 0, hi = piles;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (posA[tails[mid]] < i) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            posA[j] = i;
+            link[j] = lo == 0 ? -1 : tails[lo - 1];
+            tails[lo] = j;
+            if (lo == piles) {
+                piles += 1;
+            }
+        }
+        for (int i = aLo; i < aHi; i += 1) {
+            countA[a[i]] = 0;
+            firstA[a[i]] = -1;
+        }
+        for (int j = bLo; j < bHi; j += 1) {
+            countB[b[j]] = 0;
+        }
+        if (piles == 0) {
+            return false;
+        }
+        int nextALo = aHi, nextBLo = bHi;
+        for (int j = tails[piles - 1]; j >= 0; j = link[j]) {
+            int i = posA[j];
+            work.add(new int[] { i + 1, nextALo, j + 1, nextBLo, 0 });
+            nextALo = i;
+            nextBLo = j;
+        }
+        work.add(new int[] { aLo, nextALo, bLo, nextBLo, 0 });
+        return true;
+    }
+
+    /** If some line of B[BLO, BHI) occurs in A[ALO, AHI), but no more than
+     *  MAX_OCCURRENCES times, push onto WORK the regions on either side of
+     *  a matching run containing such a line, and return true.  Of the
+     *  runs, the one chosen is a longest among those whose least frequent
+     *  line is least frequent in A[ALO, AHI), so that in repetitive text a
+     *  long run is preferred to a chance match of a single rare line.  If
+     *  the regions have no line in common, record them as a single edit
+     *  and return true.  Otherwise return false. */
+    private boolean splitRare(int aLo, int aHi, int bLo, int bHi,
+                              List<int[]> work) {
+        for (int i = aHi - 1; i >= aLo; i -= 1) {
+            countA[a[i]] += 1;
+            nextA[i] = firstA[a[i]];
+            firstA[a[i]] = i;
+        }
+        int least = MAX_OCCURRENCES + 1;
+        int bestA = -1, bestB = -1, bestLen = 0;
+        boolean common = false;
+        for (int j = bLo; j < bHi; ) {
+            int c = countA[b[j]];
+            int skip = j + 1;
+            common |= c > 0;
+            if (c > 0 && c <= least) {
+                for (int i = firstA[b[j]]; i >= 0; i = nextA[i]) {
+                    int s = 0, e = 0, rc = c;
+                    while (i - s > aLo && j - s > bLo
+                           && a[i - s - 1] == b[j - s - 1]) {
+                        s += 1;
+                        rc = Math.min(rc, countA[a[i - s]]);
+                    }
+                    while (i + e < aHi && j + e < bHi
+                           && a[i + e] == b[j + e]) {
+                        rc = Math.min(rc, countA[a[i + e]]);
+                        e += 1;
+                    }
+                    if (rc < least || s + e > bestLen) {
+                        least = rc;
+                        bestA = i - s;
+                        bestB = j - s;
+                        bestLen = s + e;
+                    }
+                    skip = Math.max(skip, j + e);
+                }
+            }
+            j = skip;
+        }
+        for (int i = aLo; i < aHi; i += 1) {
+            countA[a[i]] = 0;
+            firstA[a[i]] = -1;
+        }
+        if (bestLen == 0) {
+            if (common) {
+                return false;
+            }
+            edits.add(new Edit(aLo, aHi, bLo, bHi));
+            return true;
+        }
+        work.add(new int[] { bestA + bestLen, aHi, bestB + bestLen, bHi,
+                             0 });
+        work.add(new int[] { aLo, bestA, bLo, bestB, 0 });
+        return true;
+    }
+
+    /** Push onto WORK the regions on either side of a point midway along
+     *  a shortest edit script between A[ALO, AHI) and B[BLO, BHI), found
+     *  by running Myers' algorithm forward from the start and backward
+     *  from the end until the two searches overlap.  If the searches go
+     *  on for more than MAX_COST steps, cut off instead the parts before
+     *  the furthest point reached by the forward search and after that
+     *  reached by the backward one, giving up minimality to bound the
+     *  running time; the parts cut off are then diffed in their turn, and
+     *  what lies between is pushed with FAILED, the size recorded for it
+     *  as described in compute.
+     *  Only the diagonals the searches can reach are cleared, so that the
+     *  cost of a cut-off search does not grow with the size of the
+     *  regions.  If the regions have no lines in common, record them as a
+     *  single edit. */
+    private void splitMiddle(int aLo, int aHi, int bLo, int bHi,
+                             int failed, List<int[]> work) {
+        int n = aHi - aLo, m = bHi - bLo;
+        int maxD = (n + m + 1) / 2;
+        int off = maxD;
+        int reach = Math.min(maxD, MAX_COST + 1);
+        Arrays.fill(forward, off - reach, off + reach + 1, -1);
+        Arrays.fill(backward, off - reach, off + reach + 1, -1);
+        forward[off + 1] = 0;
+        backward[off + 1] = 0;
+        int delta = n - m;
+        boolean odd = (delta & 1) != 0;
+        int k1start = 0, k1end = 0, k2start = 0, k2end = 0;
+        int bestX = 0, bestY = 0, backX = 0, backY = 0;
+        for (int d = 0; d < maxD; d += 1) {
+            for (int k = -d + k1start; k <= d - k1end; k += 2) {
+                int x = k == -d || (k != d && forward[off + k - 1]
+                                    < forward[off + k + 1])
+                    ? forward[off + k + 1] : forward[off + k - 1] + 1;
+                int y = x - k;
+                while (x < n && y < m && a[aLo + x] == b[bLo + y]) {
+                    x += 1;
+                    y += 1;
+                }
+                forward[off + k] = x;
+                if (x > n) {
+                    k1end += 2;
+                } else if (y > m) {
+                    k1start += 2;
+                } else if (x + y > bestX + bestY) {
+                    bestX = x;
+                    bestY = y;
+                }
+                if (odd && x <= n && y <= m) {
+                    int r = off + delta - k;
+                    if (Math.abs(r - off) <= reach && backward[r] != -1
+                        && x >= n - backward[r]) {
+                        splitAt(aLo, aHi, bLo, bHi, x, y, work);
+                        return;
+                    }
+                }
+            }
+            for (int k = -d + k2start; k <= d - k2end; k += 2) {
+                int x = k == -d || (k != d && backward[off + k - 1]
+                                    < backward[off + k + 1])
+                    ? backward[off + k + 1] : backward[off + k - 1] + 1;
+                int y = x - k;
+                while (x < n && y < m
+                       && a[aHi - 1 - x] == b[bHi - 1 - y]) {
+                    x += 1;
+                    y += 1;
+                }
+                backward[off + k] = x;
+                if (x > n) {
+                    k2end += 2;
+                } else if (y > m) {
+                    k2start += 2;
+                } else {
+                    if (x + y > backX + backY) {
+                        backX = x;
+                        backY = y;
+                    }
+                    int f = off + delta - k;
+                    if (!odd && Math.abs(f - off) <= reach
+                        && forward[f] != -1 && forward[f] >= n - x) {
+                        int fx = forward[f];
+                        splitAt(aLo, aHi, bLo, bHi, fx, off + fx - f, work);
+                        return;
+                    }
+                }
+            }
+            if (d >= MAX_COST && bestX + bestY > 0) {
+                if (bestX + backX <= n && bestY + backY <= m) {
+                    work.add(new int[] { aHi - backX, aHi, bHi - backY,
+                                         bHi, 0 });
+                    work.add(new int[] { aLo + bestX, aHi - backX,
+                                         bLo + bestY, bHi - backY,
+                                         failed });
+                    work.add(new int[] { aLo, aLo + bestX, bLo, bLo + bestY,
+                                         0 });
+                } else {
+                    splitAt(aLo, aHi, bLo, bHi, bestX, bestY, work);
+                }
+                return;
+            }
+        }
+        edits.add(new Edit(aLo, aHi, bLo, bHi));
+    }
+
+    /** Push onto WORK the regions of A[ALO, AHI) and B[BLO, BHI) before
+     *  and after the point X lines into the first and Y into the
+     *  second. */
+    private static void splitAt(int aLo, int aHi, int bLo, int bHi, int x,
+                                int y, List<int[]> work) {
+        work.add(new int[] { aLo + x, aHi, bLo + y, bHi, 0 });
+        work.add(new int[] { aLo, aLo + x, bLo, bLo + y, 0 });
+    }
+
+    /** The sequences being compared. */
+    private final int[] a, b;
+    /** Occurrences of each line number within the current region of A and
+     *  of B; zero between uses. */
+    private final int[] countA, countB;
+    /** First occurrence of each line number in the current region of A,
+     *  or -1; -1 between uses. */
+    private final int[] firstA;
+    /** For each position of A, the next occurrence of the same line in
+     *  the current region of splitRare, or -1. */
+    private final int[] nextA;
+    /** For splitUnique, the last position of B ending a sequence of each
+     *  length, the previous position of B in the sequence ending at each
+     *  position, and the position in A matching each position of B. */
+    private final int[] tails, link, posA;
+    /** Furthest-reaching paths of the forward and backward searches of
+     *  splitMiddle, indexed by diagonal. */
+    private final int[] forward, backward;
+    /** The changes found so far. */
+    private final ArrayList<Edit> edits = new ArrayList<>();
+
+    /** Assigns equal integers to equal lines, by hashing their bytes
+     *  in place into an open-addressed table. */
+    private static class Interner {
+        /** An interner expecting about EXPECTED distinct lines. */
+        Interner(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(16, expected * 2))
+                * 2;
+            table = new int[capacity];
+            lines = new Lines[expected + 1];
+            indices = new int[expected + 1];
+        }
+
+        /** Returns the number of distinct lines seen. */
+        int size() {
+            return count;
+        }
+
+        /** Returns the numbers of the lines of X, in order. */
+        int[] intern(Lines x) {
+            return intern(x, 0, x.size());
+        }
+
+        /** Returns the numbers of lines [FROM, TO) of X, in order. */
+        int[] intern(Lines x, int from, int to) {
+            int[] result = new int[to - from];
+            for (int k = from; k < to; k += 1) {
+                result[k - from] = intern(x, k);
+            }
+            return result;
+        }
+
+        /** Returns the number of line K of X. */
+        private int intern(Lines x, int k) {
+            int from = x.starts[k], to = x.starts[k + 1];
+            int h = 0;
+            for (int i = from; i < to; i += 1) {
+                h = 31 * h + x.data[i];
+            }
+            h ^= h >>> 16;
+            int mask = table.length - 1;
+            for (int slot = h & mask; ; slot = (slot + 1) & mask) {
+                int id = table[slot] - 1;
+                if (id < 0) {
+                    lines[count] = x;
+                    indices[count] = k;
+                    table[slot] = count + 1;
+                    count += 1;
+                    return count - 1;
+                }
+                Lines y = lines[id];
+                int j = indices[id];
+                if (Arrays.equals(x.data, from, to, y.data, y.starts[j],
+                                  y.starts[j + 1])) {
+                    return id;
+                }
+            }
+        }
+
+        /** Open-addressed table of line numbers plus one (0 if empty). */
+        private final int[] table;
+        /** For each line number, the Lines and index of its first
+         *  occurrence. */
+        private final Lines[] lines;
+        /** See LINES. */
+        private final int[] indices;
+        /** Number of distinct lines. */
+        private int count;
+    }
+}
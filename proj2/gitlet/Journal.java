@@ -0,0 +1,313 @@
+package gitlet;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.zip.CRC32;
+
+import static gitlet.Utils.*;
+
+/** A write-ahead journal for the small mutable files of a repository
+ *  (HEAD, the branch heads, the index, the settings, and the remotes).
+ *  A command's
+ *  updates to them are held in memory, where later reads in the same
+ *  command see them, until commit is called.  Commit writes all of them
+ *  to the journal file and forces it, and the directory holding it, to
+ *  disk, so that the journal survives a crash however soon after; then it
+ *  replaces each target by writing a temporary file and renaming it over
+ *  the target, forces the targets and their directories to disk, and
+ *  finally deletes the journal.  A crash before the
+ *  fsync completes leaves the targets untouched; a crash after it leaves
+ *  a journal that recover replays, so a command's updates are applied
+ *  entirely or not at all, and no target is ever seen half-written.
+ *
+ *  The journal file has the form
+ *      MAGIC VERSION COUNT ENTRY... CRC:8
+ *  where each ENTRY is
+ *      PATH:UTF LENGTH:4 CONTENTS
+ *  with PATH relative to the journal's directory, LENGTH -1 (and no
+ *  CONTENTS) denoting deletion, and CRC the CRC-32 of everything before
+ *  it.  A journal whose CRC does not match was not completely written,
+ *  and is discarded.
+ */
+class Journal {
+
+    /** Magic number at the start of the journal ("GLJN"). */
+    static final int MAGIC = 0x474c4a4e;
+    /** Current version of the journal format. */
+    static final int VERSION = 1;
+
+    /** A journal kept in FILE, for files under FILE's directory. */
+    Journal(File file) {
+        this.file = file;
+        this.root = file.getParentFile();
+    }
+
+    /** Schedule TARGET to be replaced with CONTENTS. */
+    void write(File target, byte[] contents) {
+        pending.put(target, contents);
+        times.put(target, System.currentTimeMillis());
+    }
+
+    /** Schedule TARGET to be replaced with the UTF-8 encoding of
+     *  CONTENTS. */
+    void write(File target, String contents) {
+        write(target, contents.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Schedule TARGET to be deleted. */
+    void delete(File target) {
+        pending.put(target, null);
+        times.put(target, System.currentTimeMillis());
+    }
+
+    /** Returns true iff TARGET exists, taking pending updates into
+     *  account. */
+    boolean exists(File target) {
+        if (pending.containsKey(target)) {
+            return pending.get(target) != null;
+        }
+        return target.isFile();
+    }
+
+    /** Returns the contents of TARGET, taking pending updates into
+     *  account. */
+    byte[] read(File target) {
+        if (pending.containsKey(target)) {
+            byte[] contents = pending.get(target);
+            if (contents == null) {
+                throw new IllegalArgumentException("no such file");
+            }
+            return contents;
+        }
+        return readContents(target);
+    }
+
+    /** Returns true iff an update to TARGET is pending. */
+    boolean isPending(File target) {
+        return pending.containsKey(target);
+    }
+
+    /** Returns the time, in milliseconds since the epoch, at which the
+     *  pending update to TARGET was scheduled. */
+    long scheduledAt(File target) {
+        return times.get(target);
+    }
+
+    /** Returns my pending updates, to be reinstated by restore. */
+    Snapshot snapshot() {
+        return new Snapshot(pending, times);
+    }
+
+    /** Replace my pending updates with those in SNAPSHOT, discarding any
+     *  made since it was taken. */
+    void restore(Snapshot snapshot) {
+        pending.clear();
+        pending.putAll(snapshot.pending);
+        times.clear();
+        times.putAll(snapshot.times);
+    }
+
+    /** Returns the paths, relative to directory DIR and separated by
+     *  '/', of the plain files under DIR, in lexicographic order, taking
+     *  pending updates into account. */
+    List<String> list(File dir) {
+        TreeSet<String> names = new TreeSet<>();
+        listFiles(dir, "", names);
+        for (Map.Entry<File, byte[]> entry : pending.entrySet()) {
+            Path target = entry.getKey().toPath();
+            if (target.startsWith(dir.toPath())) {
+                String name = dir.toPath().relativize(target).toString()
+                    .replace(File.separatorChar, '/');
+                if (entry.getValue() == null) {
+                    names.remove(name);
+                } else {
+                    names.add(name);
+                }
+            }
+        }
+        return new ArrayList<>(names);
+    }
+
+    /** Add the paths of the plain files under DIR, prefixed by PREFIX, to
+     *  RESULT. */
+    private static void listFiles(File dir, String prefix,
+                                  TreeSet<String> result) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (file.isFile()) {
+                result.add(prefix + file.getName());
+            } else if (file.isDirectory()) {
+                listFiles(file, prefix + file.getName() + "/", result);
+            }
+        }
+    }
+
+    /** Returns the contents of TARGET as a string, as for read. */
+    String readString(File target) {
+        return new String(read(target), StandardCharsets.UTF_8);
+    }
+
+    /** Make all pending updates durably, as described above. */
+    void commit() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(pending.size());
+            for (Map.Entry<File, byte[]> entry : pending.entrySet()) {
+                out.writeUTF(root.toPath().relativize(entry.getKey().toPath())
+                             .toString());
+                byte[] contents = entry.getValue();
+                out.writeInt(contents == null ? -1 : contents.length);
+                if (contents != null) {
+                    out.write(contents);
+                }
+            }
+            CRC32 crc = new CRC32();
+            crc.update(bytes.toByteArray());
+            out.writeLong(crc.getValue());
+            try (FileChannel channel =
+                     FileChannel.open(file.toPath(),
+                                      StandardOpenOption.CREATE,
+                                      StandardOpenOption.WRITE,
+                                      StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer data = ByteBuffer.wrap(bytes.toByteArray());
+                while (data.hasRemaining()) {
+                    channel.write(data);
+                }
+                channel.force(true);
+            }
+            force(file.getParentFile());
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        apply(root, pending);
+        pending.clear();
+        times.clear();
+        file.delete();
+    }
+
+    /** If a complete journal was left in FILE by an interrupted command,
+     *  apply its updates.  Delete any journal in FILE. */
+    static void recover(File file) {
+        if (!file.isFile()) {
+            return;
+        }
+        File root = file.getParentFile();
+        byte[] data = readContents(file);
+        int end = data.length - 8;
+        LinkedHashMap<File, byte[]> updates = new LinkedHashMap<>();
+        boolean complete = false;
+        if (end >= 12) {
+            CRC32 crc = new CRC32();
+            crc.update(data, 0, end);
+            DataInputStream in =
+                new DataInputStream(new ByteArrayInputStream(data));
+            try {
+                if (ByteBuffer.wrap(data).getLong(end) == crc.getValue()
+                    && in.readInt() == MAGIC && in.readInt() == VERSION) {
+                    for (int n = in.readInt(); n > 0; n -= 1) {
+                        String path = in.readUTF();
+                        int size = in.readInt();
+                        byte[] contents = null;
+                        if (size >= 0) {
+                            contents = new byte[size];
+                            in.readFully(contents);
+                        }
+                        updates.put(new File(root, path), contents);
+                    }
+                    complete = true;
+                }
+            } catch (IOException excp) {
+                complete = false;
+            }
+        }
+        if (complete) {
+            apply(root, updates);
+        }
+        file.delete();
+    }
+
+    /** Replace or delete each key of UPDATES according to its value, by
+     *  writing a temporary file in ROOT and renaming it over the target,
+     *  then force the targets and their directories to disk, so that the
+     *  journal may be deleted. */
+    private static void apply(File root, Map<File, byte[]> updates) {
+        TreeSet<File> dirs = new TreeSet<>();
+        for (Map.Entry<File, byte[]> entry : updates.entrySet()) {
+            File target = entry.getKey();
+            dirs.add(target.getParentFile());
+            if (entry.getValue() == null) {
+                target.delete();
+                continue;
+            }
+            try {
+                for (File dir = target.getParentFile(); !dir.isDirectory();
+                     dir = dir.getParentFile()) {
+                    dirs.add(dir.getParentFile());
+                }
+                target.getParentFile().mkdirs();
+                File tmp = createTempFile(root, "");
+                Files.write(tmp.toPath(), entry.getValue());
+                force(tmp);
+                Files.move(tmp.toPath(), target.toPath(),
+                           StandardCopyOption.ATOMIC_MOVE,
+                           StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException excp) {
+                throw new IllegalArgumentException(excp.getMessage());
+            }
+        }
+        for (File dir : dirs) {
+            force(dir);
+        }
+    }
+
+    /** The journal file. */
+    private final File file;
+    /** The directory against which paths in the journal are resolved. */
+    private final File root;
+    /** Pending updates, in the order made: target to new contents, or to
+     *  null for deletion. */
+    private final LinkedHashMap<File, byte[]> pending = new LinkedHashMap<>();
+    /** Times at which the pending updates were scheduled, in milliseconds
+     *  since the epoch. */
+    private final HashMap<File, Long> times = new HashMap<>();
+
+    /** The pending updates of a journal at one moment. */
+    static class Snapshot {
+        /** A copy of the updates PENDING, scheduled at TIMES. */
+        private Snapshot(Map<File, byte[]> pending, Map<File, Long> times) {
+            this.pending = new LinkedHashMap<>(pending);
+            this.times = new HashMap<>(times);
+        }
+
+        /** The pending updates. */
+        private final LinkedHashMap<File, byte[]> pending;
+        /** The times at which they were scheduled. */
+        private final HashMap<File, Long> times;
+    }
+}
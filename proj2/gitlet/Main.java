@@ -1,24 +1,194 @@
 package gitlet;
 
-/** Driver class for Gitlet, a subset of the Git version-control system.
- *  @author TODO
- */
+import java.util.Arrays;
+import java.util.Collections;
+
+/** Driver class for Gitlet, a subset of the Git version-control system. */
 public class Main {
 
-    /** Usage: java gitlet.Main ARGS, where ARGS contains
-     *  <COMMAND> <OPERAND1> <OPERAND2> ... 
+    /** Usage: java gitlet.Main [--stats] ARGS, where ARGS contains
+     *  <COMMAND> <OPERAND1> <OPERAND2> ...
+     *  With --stats, the counters of the object cache are printed to the
+     *  standard error when the command finishes.  The command serve
+     *  instead runs commands read from the standard input (see Server),
+     *  and watch watches the working tree for status (see Watcher).
      */
     public static void main(String[] args) {
-        // TODO: what if args is empty?
+        boolean stats = args.length > 0 && args[0].equals("--stats");
+        if (stats) {
+            args = Arrays.copyOfRange(args, 1, args.length);
+        }
+        if (args.length == 0) {
+            Utils.message("Please enter a command.");
+            System.exit(0);
+        }
+        try {
+            if (args[0].equals("serve")) {
+                validateNumArgs(args, 1);
+                new Server(System.in, System.out, System.err).serve();
+            } else if (args[0].equals("watch")) {
+                validateNumArgs(args, 1);
+                Repository.watch();
+            } else {
+                run(args);
+                Repository.flush();
+            }
+        } catch (GitletException excp) {
+            System.out.println(excp.getMessage());
+        } finally {
+            if (stats) {
+                Repository.printStats();
+            }
+        }
+        System.exit(0);
+    }
+
+    /** Runs the command given by ARGS, its name followed by its
+     *  operands, leaving its updates to HEAD, branch heads, and the index
+     *  in the journal (see Repository.flush). */
+    static void run(String[] args) {
         String firstArg = args[0];
         switch(firstArg) {
             case "init":
-                // TODO: handle the `init` command
+                validateNumArgs(args, 1);
+                Repository.init();
                 break;
             case "add":
-                // TODO: handle the `add [filename]` command
+                validateMinArgs(args, 2);
+                Repository.add(Arrays.asList(args).subList(1, args.length));
+                break;
+            case "commit":
+                validateNumArgs(args, 2);
+                Repository.commit(args[1]);
+                break;
+            case "log":
+                validateNumArgs(args, 1);
+                Repository.log();
+                break;
+            case "global-log":
+                validateNumArgs(args, 1);
+                Repository.globalLog();
+                break;
+            case "find":
+                validateNumArgs(args, 2);
+                Repository.find(args[1]);
+                break;
+            case "status":
+                validateNumArgs(args, 1);
+                Repository.status();
+                break;
+            case "checkout":
+                if (args.length == 3 && args[1].equals("--")) {
+                    Repository.checkoutFile(null, args[2]);
+                } else if (args.length == 4 && args[2].equals("--")) {
+                    Repository.checkoutFile(args[1], args[3]);
+                } else if (args.length == 2) {
+                    Repository.checkoutBranch(args[1]);
+                } else {
+                    throw Utils.error("Incorrect operands.");
+                }
+                break;
+            case "reset":
+                validateNumArgs(args, 2);
+                Repository.reset(args[1]);
+                break;
+            case "branch":
+                validateNumArgs(args, 2);
+                Repository.branch(args[1]);
+                break;
+            case "rm-branch":
+                validateNumArgs(args, 2);
+                Repository.rmBranch(args[1]);
+                break;
+            case "merge":
+                validateNumArgs(args, 2);
+                Repository.merge(args[1]);
+                break;
+            case "diff":
+                if (args.length > 3) {
+                    throw Utils.error("Incorrect operands.");
+                }
+                Repository.diff(args.length > 1 ? args[1] : null,
+                                args.length > 2 ? args[2] : null);
                 break;
-            // TODO: FILL THE REST IN
+            case "blame":
+                if (args.length == 2) {
+                    Repository.blame(null, args[1]);
+                } else if (args.length == 4 && args[2].equals("--")) {
+                    Repository.blame(args[1], args[3]);
+                } else {
+                    throw Utils.error("Incorrect operands.");
+                }
+                break;
+            case "repack":
+                validateNumArgs(args, 1);
+                Repository.repack();
+                break;
+            case "gc":
+                validateNumArgs(args, 1);
+                Repository.gc();
+                break;
+            case "config":
+                validateMinArgs(args, 2);
+                if (args.length > 3) {
+                    throw Utils.error("Incorrect operands.");
+                }
+                Repository.config(args[1],
+                                  args.length == 3 ? args[2] : null);
+                break;
+            case "sparse-checkout":
+                validateMinArgs(args, 2);
+                if (args[1].equals("set") && args.length > 2) {
+                    Repository.sparseCheckout(
+                        Arrays.asList(args).subList(2, args.length));
+                } else if (args[1].equals("disable") && args.length == 2) {
+                    Repository.sparseCheckout(Collections.emptyList());
+                } else if (args[1].equals("list") && args.length == 2) {
+                    Repository.listSparseCheckout();
+                } else {
+                    throw Utils.error("Incorrect operands.");
+                }
+                break;
+            case "add-remote":
+                validateNumArgs(args, 3);
+                Repository.addRemote(args[1], args[2]);
+                break;
+            case "rm-remote":
+                validateNumArgs(args, 2);
+                Repository.rmRemote(args[1]);
+                break;
+            case "push":
+                validateNumArgs(args, 3);
+                Repository.push(args[1], args[2]);
+                break;
+            case "fetch":
+                validateNumArgs(args, 3);
+                Repository.fetch(args[1], args[2]);
+                break;
+            case "pull":
+                validateNumArgs(args, 3);
+                Repository.pull(args[1], args[2]);
+                break;
+            default:
+                throw Utils.error("No command with that name exists.");
+        }
+    }
+
+    /** Throws a GitletException with the message "Incorrect operands."
+     *  unless ARGS, the command and its operands, has exactly N
+     *  elements. */
+    static void validateNumArgs(String[] args, int n) {
+        if (args.length != n) {
+            throw Utils.error("Incorrect operands.");
+        }
+    }
+
+    /** Throws a GitletException with the message "Incorrect operands."
+     *  unless ARGS, the command and its operands, has at least N
+     *  elements. */
+    static void validateMinArgs(String[] args, int n) {
+        if (args.length < n) {
+            throw Utils.error("Incorrect operands.");
         }
     }
 }
@@ -0,0 +1,134 @@
+package gitlet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static gitlet.Utils.*;
+
+/** An inverted index from commit messages to the commits bearing them,
+ *  so that find need not read every commit.  Messages are represented by
+ *  64-bit hashes (the first eight bytes of their SHA-1), so a lookup
+ *  yields candidates that callers confirm against the commits themselves;
+ *  a false match costs one extra commit read.
+ *
+ *  The index is an append-only file of the form
+ *      MAGIC VERSION RECORD...
+ *  where each RECORD is
+ *      HASH:8 UID:20
+ *  in the order in which the commits were made.  Lookups scan the
+ *  memory-mapped records, comparing hashes only, at about 28 bytes per
+ *  commit.
+ *
+ *  A crash may cut an append short.  An index whose header is damaged or
+ *  whose records do not fill it exactly is corrupt: add then deletes it
+ *  rather than append records out of step, and candidates throws, so
+ *  that the caller can rebuild it.
+ */
+class MessageIndex {
+
+    /** Magic number at the start of the index ("GLMI"). */
+    static final int MAGIC = 0x474c4d49;
+    /** Current version of the index format. */
+    static final int VERSION = 1;
+
+    /** Size of the header. */
+    private static final int HEADER_SIZE = 8;
+    /** Size of a record. */
+    private static final int RECORD_SIZE = 8 + UID_BYTES;
+
+    /** The index stored in FILE. */
+    MessageIndex(File file) {
+        this.file = file;
+    }
+
+    /** Returns true iff my file exists. */
+    boolean exists() {
+        return file.isFile();
+    }
+
+    /** Deletes my file. */
+    void clear() {
+        file.delete();
+    }
+
+    /** Records that the commit with UID ID has message MESSAGE, unless
+     *  my file is corrupt, in which case it is deleted instead. */
+    void add(String id, String message) {
+        long length = file.length();
+        if (file.isFile() && (length < HEADER_SIZE
+                              || (length - HEADER_SIZE) % RECORD_SIZE != 0)) {
+            clear();
+            return;
+        }
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            if (!file.isFile()) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+            }
+            out.writeLong(hash(message));
+            out.write(uidToBytes(id));
+            try (OutputStream data =
+                     Files.newOutputStream(file.toPath(),
+                                           StandardOpenOption.CREATE,
+                                           StandardOpenOption.APPEND)) {
+                data.write(bytes.toByteArray());
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Returns the UIDs of the commits that may have message MESSAGE, in
+     *  the order in which they were added.  Every commit with that
+     *  message is included.  Throws a GitletException if my file is
+     *  corrupt. */
+    List<String> candidates(String message) {
+        List<String> result = new ArrayList<>();
+        if (!file.isFile()) {
+            return result;
+        }
+        ByteBuffer data = mapContents(file);
+        if (data.limit() < HEADER_SIZE || data.getInt(0) != MAGIC
+            || data.getInt(4) != VERSION
+            || (data.limit() - HEADER_SIZE) % RECORD_SIZE != 0) {
+            throw error("Corrupt message index.");
+        }
+        long key = hash(message);
+        byte[] id = new byte[UID_BYTES];
+        for (int p = HEADER_SIZE; p < data.limit(); p += RECORD_SIZE) {
+            if (data.getLong(p) == key) {
+                data.get(p + 8, id);
+                result.add(bytesToUid(id, 0, UID_BYTES));
+            }
+        }
+        return result;
+    }
+
+    /** Returns the 64-bit hash of MESSAGE. */
+    static long hash(String message) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-1");
+            byte[] digest =
+                md.digest(message.getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(digest).getLong();
+        } catch (NoSuchAlgorithmException excp) {
+            throw new IllegalArgumentException("System does not support SHA-1");
+        }
+    }
+
+    /** The file holding the index. */
+    private final File file;
+}
@@ -0,0 +1,86 @@
+package gitlet;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** A least-recently-used cache of decoded objects, keyed by UID and
+ *  bounded by the total weight of its entries.  The weight of an entry is
+ *  the size in bytes of the encoding from which it was decoded, which is
+ *  roughly proportional to the memory it occupies.  The cache counts its
+ *  hits, misses, and evictions, so that its capacity can be tuned.
+ */
+class ObjectCache {
+
+    /** A cache holding entries of total weight at most CAPACITY. */
+    ObjectCache(long capacity) {
+        this.capacity = capacity;
+    }
+
+    /** Returns the value cached for ID, or null if there is none, marking
+     *  it as the most recently used. */
+    synchronized Object get(String id) {
+        Slot slot = slots.get(id);
+        if (slot == null) {
+            misses += 1;
+            return null;
+        }
+        hits += 1;
+        return slot.value;
+    }
+
+    /** Cache VALUE, of weight WEIGHT, for ID, evicting least recently used
+     *  entries as needed to stay within capacity.  Values heavier than the
+     *  whole capacity are not cached. */
+    synchronized void put(String id, Object value, int weight) {
+        if (weight > capacity) {
+            return;
+        }
+        Slot old = slots.put(id, new Slot(value, weight));
+        if (old != null) {
+            weight -= old.weight;
+        }
+        this.weight += weight;
+        Iterator<Slot> eldest = slots.values().iterator();
+        while (this.weight > capacity) {
+            this.weight -= eldest.next().weight;
+            eldest.remove();
+            evictions += 1;
+        }
+    }
+
+    /** Returns a one-line summary of my size and counters. */
+    synchronized String stats() {
+        long lookups = hits + misses;
+        return String.format("object cache: %d entries, %d/%d bytes, "
+                             + "%d hits, %d misses (%.1f%% hit rate), "
+                             + "%d evictions",
+                             slots.size(), weight, capacity, hits, misses,
+                             lookups == 0 ? 0.0 : 100.0 * hits / lookups,
+                             evictions);
+    }
+
+    /** A cached value and its weight. */
+    private static class Slot {
+        /** A slot holding VALUE, of weight WEIGHT. */
+        Slot(Object value, int weight) {
+            this.value = value;
+            this.weight = weight;
+        }
+
+        /** The cached value. */
+        final Object value;
+        /** The weight of the value. */
+        final int weight;
+    }
+
+    /** The greatest total weight of my entries. */
+    private final long capacity;
+    /** The current total weight of my entries. */
+    private long weight;
+    /** Counters of lookups and evictions. */
+    private long hits, misses, evictions;
+    /** My entries, from least to most recently used. */
+    private final Map<String, Slot> slots =
+        new LinkedHashMap<>(16, 0.75f, true);
+}
@@ -0,0 +1,183 @@
+package gitlet;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static gitlet.Utils.*;
+
+/** The binary encoding of Gitlet objects other than blobs, used in place
+ *  of Java serialization.  UIDs are written as raw 20-byte values,
+ *  lengths and counts as varints (see Utils.writeVarint), and strings as
+ *  a varint length followed by UTF-8 bytes.  A commit is encoded as
+ *      VERSION:1 FLAGS:1 TIME [PARENT:20] [SECONDPARENT:20] TREE:20
+ *      MESSAGE
+ *  where FLAGS records which parents are present, TIME is a varint
+ *  number of milliseconds since the epoch, and TREE is the UID of the
+ *  commit's root tree.  A tree is encoded as
+ *      VERSION:1 COUNT ENTRY...
+ *  where each of the COUNT ENTRYs, in order of name, is
+ *      TYPE:1 SHARED SUFFIX ID:20
+ *  giving the entry's type (ObjectStore.BLOB or ObjectStore.TREE) and its
+ *  name, as the number of leading characters it shares with the previous
+ *  name followed by the rest of the name.  Characters are counted in
+ *  UTF-16 units, and the shared part never ends inside a surrogate pair,
+ *  so that the rest can be written as UTF-8.  The chunk list of a chunked
+ *  blob (see ObjectStore.CHUNKED) is encoded as
+ *      VERSION:1 COUNT ID:20...
+ *  giving the UIDs of its COUNT chunks in order.
+ */
+class ObjectCodec {
+
+    /** Current version of the commit encoding. */
+    static final int COMMIT_VERSION = 2;
+    /** Current version of the tree encoding. */
+    static final int TREE_VERSION = 1;
+    /** Current version of the chunk-list encoding. */
+    static final int CHUNKS_VERSION = 1;
+    /** FLAGS bit indicating a first parent. */
+    private static final int HAS_PARENT = 1;
+    /** FLAGS bit indicating a second parent. */
+    private static final int HAS_SECOND_PARENT = 2;
+
+    /** Returns the encoding of COMMIT. */
+    static byte[] encodeCommit(Commit commit) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(COMMIT_VERSION);
+        String parent = commit.getParent();
+        String secondParent = commit.getSecondParent();
+        out.write((parent != null ? HAS_PARENT : 0)
+                  | (secondParent != null ? HAS_SECOND_PARENT : 0));
+        writeVarint(out, commit.getTimestamp().getTime());
+        if (parent != null) {
+            out.writeBytes(uidToBytes(parent));
+        }
+        if (secondParent != null) {
+            out.writeBytes(uidToBytes(secondParent));
+        }
+        out.writeBytes(uidToBytes(commit.getTree()));
+        writeString(out, commit.getMessage());
+        return out.toByteArray();
+    }
+
+    /** Returns the commit encoded in DATA, which is consumed. */
+    static Commit decodeCommit(ByteBuffer data) {
+        if (data.get() != COMMIT_VERSION) {
+            throw error("Unknown commit format.");
+        }
+        int flags = data.get();
+        Date timestamp = new Date(readVarlong(data));
+        String parent = (flags & HAS_PARENT) != 0 ? readUid(data) : null;
+        String secondParent =
+            (flags & HAS_SECOND_PARENT) != 0 ? readUid(data) : null;
+        String tree = readUid(data);
+        String message = readString(data);
+        return new Commit(message, timestamp, parent, secondParent, tree);
+    }
+
+    /** Returns the encoding of TREE. */
+    static byte[] encodeTree(Tree tree) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(TREE_VERSION);
+        writeVarint(out, tree.entries().size());
+        String prev = "";
+        for (Map.Entry<String, Tree.Entry> entry
+                 : tree.entries().entrySet()) {
+            String name = entry.getKey();
+            int shared = 0;
+            int limit = Math.min(prev.length(), name.length());
+            while (shared < limit
+                   && prev.charAt(shared) == name.charAt(shared)) {
+                shared += 1;
+            }
+            if (shared > 0
+                && Character.isHighSurrogate(name.charAt(shared - 1))) {
+                shared -= 1;
+            }
+            out.write(entry.getValue().type);
+            writeVarint(out, shared);
+            writeString(out, name.substring(shared));
+            out.writeBytes(uidToBytes(entry.getValue().id));
+            prev = name;
+        }
+        return out.toByteArray();
+    }
+
+    /** Returns the tree encoded in DATA, which is consumed. */
+    static Tree decodeTree(ByteBuffer data) {
+        if (data.get() != TREE_VERSION) {
+            throw error("Unknown tree format.");
+        }
+        TreeMap<String, Tree.Entry> entries = new TreeMap<>();
+        StringBuilder name = new StringBuilder();
+        byte[] id = new byte[UID_BYTES];
+        for (int n = readVarint(data); n > 0; n -= 1) {
+            int type = data.get();
+            name.setLength(readVarint(data));
+            name.append(readString(data));
+            data.get(id);
+            entries.put(name.toString(),
+                        new Tree.Entry(type, bytesToUid(id, 0, UID_BYTES)));
+        }
+        return new Tree(entries);
+    }
+
+    /** Returns the encoding of the chunk list CHUNKS. */
+    static byte[] encodeChunks(List<String> chunks) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(CHUNKS_VERSION);
+        writeVarint(out, chunks.size());
+        for (String id : chunks) {
+            out.writeBytes(uidToBytes(id));
+        }
+        return out.toByteArray();
+    }
+
+    /** Returns the chunk list encoded in DATA, which is consumed. */
+    static List<String> decodeChunks(ByteBuffer data) {
+        if (data.get() != CHUNKS_VERSION) {
+            throw error("Unknown chunk list format.");
+        }
+        int n = readVarint(data);
+        List<String> result = new ArrayList<>(n);
+        for (int i = 0; i < n; i += 1) {
+            result.add(readUid(data));
+        }
+        return result;
+    }
+
+    /** Write S to OUT as a varint length and UTF-8 bytes. */
+    static void writeString(ByteArrayOutputStream out, String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length);
+        out.writeBytes(bytes);
+    }
+
+    /** Returns the string read from IN as written by writeString. */
+    static String readString(ByteBuffer in) {
+        int len = readVarint(in);
+        String result;
+        if (in.hasArray()) {
+            result = new String(in.array(), in.arrayOffset() + in.position(),
+                                len, StandardCharsets.UTF_8);
+        } else {
+            byte[] bytes = new byte[len];
+            in.get(in.position(), bytes);
+            result = new String(bytes, StandardCharsets.UTF_8);
+        }
+        in.position(in.position() + len);
+        return result;
+    }
+
+    /** Returns the hexadecimal form of the raw UID read from IN. */
+    static String readUid(ByteBuffer in) {
+        byte[] id = new byte[UID_BYTES];
+        in.get(id);
+        return bytesToUid(id, 0, UID_BYTES);
+    }
+}
@@ -0,0 +1,882 @@
+package gitlet;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import static gitlet.Utils.*;
+
+/** The object database of a Gitlet repository.  Each object (blob,
+ *  commit, tree) is named by a SHA-1 UID and is stored
+ *  either loose, as a single file in the loose-object directory, or in one
+ *  of the packs (see Pack) in the pack directory.  Lookups consult the
+ *  packs first, by binary search over their memory-mapped indices, and
+ *  fall back on the loose files.
+ *
+ *  As in Git, the UID of an object is the SHA-1 hash of a header
+ *  "TYPE SIZE\0", giving its type name and its size in decimal, followed
+ *  by its contents, so that objects of different types with the same
+ *  contents have different UIDs, and an object read back under the wrong
+ *  type cannot be mistaken for the one intended.
+ *
+ *  Loose objects are fanned out over subdirectories named by the first
+ *  two hexadecimal digits of their UIDs, with the rest of the UID naming
+ *  the file (objects/ab/cdef...), so that no directory grows too large
+ *  to list quickly.  A loose object file consists of a one-byte type
+ *  followed by the object's contents.  If the COMPRESSED bit is set in
+ *  the type byte, the contents are Deflate-compressed.  Objects, loose or
+ *  packed, are compressed at the store's compression level (see Config)
+ *  unless that would save less than an eighth of their size, in which
+ *  case they are stored as they are; small incompressible objects such as
+ *  most trees thus remain directly readable from mapped packs.  Compressed
+ *  objects are inflated a buffer at a time, never through an extra copy
+ *  of their compressed form.
+ *
+ *  Files of at least CHUNKING_THRESHOLD bytes are stored chunked: they
+ *  are cut into content-defined chunks (see Chunker), each stored as a
+ *  blob of its own, and the file's UID names a CHUNKED object listing
+ *  them.  An edit to a large file then adds only the chunks it touches.
+ *  Chunked blobs are otherwise indistinguishable from other blobs: their
+ *  UIDs are those of blobs with their full contents, type reports them as
+ *  BLOBs, and buffer, get, and writeTo reassemble them.
+ *
+ *  Decoded commits and trees are kept in an ObjectCache, so that commands
+ *  that revisit the same objects decode each of them only once.
+ */
+class ObjectStore {
+
+    /** Type of an object holding the contents of a file. */
+    static final int BLOB = 1;
+    /** Type of an object holding an encoded Commit. */
+    static final int COMMIT = 2;
+    /** Type of an object holding an encoded Tree. */
+    static final int TREE = 3;
+    /** Type of an object holding the chunk list (see ObjectCodec) of a
+     *  chunked blob. */
+    static final int CHUNKED = 4;
+    /** Names of the types in the headers from which UIDs are computed,
+     *  indexed by type. */
+    private static final String[] TYPE_NAMES = {
+        null, "blob", "commit", "tree"
+    };
+    /** Flag in the type byte of a loose object indicating compressed
+     *  contents. */
+    static final int COMPRESSED = 0x80;
+    /** Size in bytes of the smallest file stored as a chunked blob. */
+    static final long CHUNKING_THRESHOLD = 1 << 20;
+    /** Size in bytes of the windows in which large files are mapped. */
+    static final int MAP_WINDOW = 1 << 30;
+
+    /** An object store keeping loose objects in LOOSEDIR and packs in
+     *  PACKDIR, with no cache of decoded objects. */
+    ObjectStore(File looseDir, File packDir) {
+        this(looseDir, packDir, 0);
+    }
+
+    /** An object store keeping loose objects in LOOSEDIR and packs in
+     *  PACKDIR, caching up to CACHEBYTES bytes' worth of decoded
+     *  objects. */
+    ObjectStore(File looseDir, File packDir, long cacheBytes) {
+        this(looseDir, packDir, cacheBytes, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /** An object store keeping loose objects in LOOSEDIR and packs in
+     *  PACKDIR, caching up to CACHEBYTES bytes' worth of decoded objects,
+     *  and compressing new objects at Deflate level LEVEL. */
+    ObjectStore(File looseDir, File packDir, long cacheBytes, int level) {
+        this.looseDir = looseDir;
+        this.packDir = packDir;
+        this.cache = new ObjectCache(cacheBytes);
+        this.level = level;
+    }
+
+    /** Store DATA as an object of type TYPE, if not already present, and
+     *  return its UID. */
+    String put(int type, byte[] data) {
+        String id = uid(type, data);
+        if (!contains(id)) {
+            looseDir.mkdirs();
+            File tmp = null;
+            try {
+                tmp = createTempFile(looseDir, "");
+                byte[] packed = deflate(data, level);
+                if (packed == null) {
+                    writeContents(tmp, new byte[] { (byte) type }, data);
+                } else {
+                    writeContents(tmp,
+                                  new byte[] { (byte) (type | COMPRESSED) },
+                                  packed);
+                }
+                install(tmp, id);
+            } catch (IOException excp) {
+                if (tmp != null) {
+                    tmp.delete();
+                }
+                throw new IllegalArgumentException(excp.getMessage());
+            }
+        }
+        return id;
+    }
+
+    /** Move TMP, a complete loose object, into place as the object with
+     *  UID ID.  TMP is forced to disk first, so that a crash cannot leave
+     *  a torn object under a name that put would then take to be present;
+     *  the new directory entry is made durable by sync. */
+    private void install(File tmp, String id) throws IOException {
+        force(tmp);
+        File dest = looseFile(id);
+        File dir = dest.getParentFile();
+        if (dir.mkdirs()) {
+            unsynced.add(looseDir);
+        }
+        Files.move(tmp.toPath(), dest.toPath(),
+                   StandardCopyOption.ATOMIC_MOVE);
+        unsynced.add(dir);
+    }
+
+    /** Force to disk the directories into which loose objects have been
+     *  moved since the last call, making those objects durable.  Called
+     *  before any reference to them is made durable.  A directory that
+     *  no longer exists was emptied by repack, which made its objects
+     *  durable in a pack before removing them, and is skipped. */
+    void sync() {
+        for (File dir : unsynced) {
+            if (dir.isDirectory()) {
+                force(dir);
+            }
+        }
+        unsynced.clear();
+    }
+
+    /** Returns the UID of an object of type TYPE with contents DATA. */
+    static String uid(int type, byte[] data) {
+        MessageDigest md = digest(type, data.length);
+        md.update(data);
+        return bytesToUid(md.digest(), 0, UID_BYTES);
+    }
+
+    /** Returns the UID of a blob with the contents of FILE, which must be
+     *  a normal file, as putFile would store it.  The file is read in
+     *  chunks of CHUNK_SIZE bytes, so that it need not fit in memory. */
+    static String uid(File file) {
+        if (!file.isFile()) {
+            throw new IllegalArgumentException("must be a normal file");
+        }
+        try (FileChannel in = FileChannel.open(file.toPath(),
+                                               StandardOpenOption.READ)) {
+            long size = in.size();
+            MessageDigest md = digest(BLOB, size);
+            ByteBuffer buf = ByteBuffer.allocate(CHUNK_SIZE);
+            while (in.read(buf) >= 0) {
+                buf.flip();
+                size -= buf.remaining();
+                md.update(buf);
+                buf.clear();
+            }
+            if (size != 0) {
+                throw new IOException("file changed while read");
+            }
+            return bytesToUid(md.digest(), 0, UID_BYTES);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Returns a SHA-1 digest that has been fed the header of an object
+     *  of type TYPE and SIZE bytes, as described above. */
+    private static MessageDigest digest(int type, long size) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-1");
+            md.update((TYPE_NAMES[type] + " " + size + "\0")
+                      .getBytes(StandardCharsets.US_ASCII));
+            return md;
+        } catch (NoSuchAlgorithmException excp) {
+            throw new IllegalArgumentException("System does not support SHA-1");
+        }
+    }
+
+    /** Returns DATA compressed at Deflate level LEVEL, or null if LEVEL
+     *  is 0 or compression would save less than an eighth of its
+     *  size. */
+    static byte[] deflate(byte[] data, int level) {
+        if (level == 0) {
+            return null;
+        }
+        Deflater deflater = new Deflater(level);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            int limit = data.length - data.length / 8;
+            byte[] result = new byte[limit];
+            int n = 0;
+            while (!deflater.finished() && n < limit) {
+                n += deflater.deflate(result, n, limit - n);
+            }
+            return deflater.finished() && n < limit
+                ? Arrays.copyOf(result, n) : null;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /** Returns the Deflate-compressed DATA, inflated. */
+    static byte[] inflate(ByteBuffer data) {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        inflate(data, result);
+        return result.toByteArray();
+    }
+
+    /** Write the Deflate-compressed DATA, inflated a buffer at a time, to
+     *  OUT. */
+    static void inflate(ByteBuffer data, OutputStream out) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data.duplicate());
+            byte[] buf = new byte[CHUNK_SIZE];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buf);
+                if (n == 0 && (inflater.needsInput()
+                               || inflater.needsDictionary())) {
+                    throw error("Corrupt compressed object.");
+                }
+                out.write(buf, 0, n);
+            }
+        } catch (DataFormatException | IOException excp) {
+            throw error("Corrupt compressed object.");
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /** Store the contents of FILE as a blob, if not already present, and
+     *  return its UID.  FILE is read in chunks that are hashed and
+     *  compressed into a temporary loose object in a single pass, so that
+     *  memory use is bounded regardless of the size of FILE. */
+    String putFile(File file) {
+        if (!file.isFile()) {
+            throw new IllegalArgumentException("must be a normal file");
+        }
+        if (file.length() >= CHUNKING_THRESHOLD) {
+            return putChunked(file);
+        }
+        looseDir.mkdirs();
+        File tmp = null;
+        try {
+            tmp = createTempFile(looseDir, "");
+            MessageDigest md;
+            try (FileChannel in = FileChannel.open(file.toPath(),
+                                                   StandardOpenOption.READ);
+                 OutputStream raw = Files.newOutputStream(tmp.toPath())) {
+                long size = in.size();
+                md = digest(BLOB, size);
+                raw.write(level == 0 ? BLOB : BLOB | COMPRESSED);
+                Deflater deflater = level == 0 ? null : new Deflater(level);
+                try {
+                    OutputStream out = deflater == null ? raw
+                        : new DeflaterOutputStream(raw, deflater,
+                                                   CHUNK_SIZE);
+                    ByteBuffer buf = ByteBuffer.allocate(CHUNK_SIZE);
+                    while (in.read(buf) >= 0) {
+                        md.update(buf.array(), 0, buf.position());
+                        out.write(buf.array(), 0, buf.position());
+                        size -= buf.position();
+                        buf.clear();
+                    }
+                    if (size != 0) {
+                        throw new IOException("file changed while read");
+                    }
+                    if (out != raw) {
+                        ((DeflaterOutputStream) out).finish();
+                    }
+                } finally {
+                    if (deflater != null) {
+                        deflater.end();
+                    }
+                }
+            }
+            String id = bytesToUid(md.digest(), 0, UID_BYTES);
+            if (contains(id)) {
+                tmp.delete();
+            } else {
+                install(tmp, id);
+            }
+            return id;
+        } catch (IOException excp) {
+            if (tmp != null) {
+                tmp.delete();
+            }
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Store the contents of FILE as a chunked blob, if not already
+     *  present, and return its UID.  Only chunks not already present are
+     *  written.  FILE is mapped MAP_WINDOW bytes at a time, so that it
+     *  may be of any size; each window is replaced once fewer than
+     *  Chunker.MAX_SIZE bytes of it remain, so that chunk boundaries are
+     *  the same as if FILE were mapped whole. */
+    private String putChunked(File file) {
+        try (FileChannel in = FileChannel.open(file.toPath(),
+                                               StandardOpenOption.READ)) {
+            long size = in.size();
+            MessageDigest whole = digest(BLOB, size);
+            ByteBuffer data = null;
+            long base = 0;
+            List<String> chunks = new ArrayList<>();
+            for (long pos = 0; pos < size;) {
+                if (data == null || pos + Math.min(size - pos,
+                                                   Chunker.MAX_SIZE)
+                                    > base + data.limit()) {
+                    base = pos;
+                    data = in.map(FileChannel.MapMode.READ_ONLY, base,
+                                  Math.min(size - base, MAP_WINDOW));
+                }
+                int start = (int) (pos - base);
+                int len = Chunker.cut(data, start, data.limit());
+                ByteBuffer chunk = data.slice(start, len);
+                whole.update(chunk.duplicate());
+                MessageDigest part = digest(BLOB, len);
+                part.update(chunk.duplicate());
+                String chunkId = bytesToUid(part.digest(), 0, UID_BYTES);
+                if (!contains(chunkId)) {
+                    putCompressed(chunkId, BLOB, chunk);
+                }
+                chunks.add(chunkId);
+                pos += len;
+            }
+            String id = bytesToUid(whole.digest(), 0, UID_BYTES);
+            if (!contains(id)) {
+                byte[] list = ObjectCodec.encodeChunks(chunks);
+                putCompressed(id, CHUNKED, ByteBuffer.wrap(list));
+            }
+            return id;
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Store DATA as a loose object of type TYPE and UID ID, compressed
+     *  at my compression level. */
+    private void putCompressed(String id, int type, ByteBuffer data) {
+        looseDir.mkdirs();
+        File tmp = null;
+        try {
+            tmp = createTempFile(looseDir, "");
+            try (OutputStream raw = Files.newOutputStream(tmp.toPath())) {
+                if (level == 0) {
+                    raw.write(type);
+                    Channels.newChannel(raw).write(data.duplicate());
+                } else {
+                    raw.write(type | COMPRESSED);
+                    Deflater deflater = new Deflater(level);
+                    try {
+                        DeflaterOutputStream out =
+                            new DeflaterOutputStream(raw, deflater,
+                                                     CHUNK_SIZE);
+                        Channels.newChannel(out).write(data.duplicate());
+                        out.finish();
+                    } finally {
+                        deflater.end();
+                    }
+                }
+            }
+            install(tmp, id);
+        } catch (IOException excp) {
+            if (tmp != null) {
+                tmp.delete();
+            }
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Returns true iff the object with UID ID is present. */
+    boolean contains(String id) {
+        return findPacked(id) != null || looseFile(id).isFile();
+    }
+
+    /** Returns the type of the object with UID ID, taking chunked blobs
+     *  to be BLOBs. */
+    int type(String id) {
+        int type = storedType(id);
+        return type == CHUNKED ? BLOB : type;
+    }
+
+    /** Returns the type with which the object with UID ID is stored. */
+    private int storedType(String id) {
+        Located loc = findPacked(id);
+        if (loc != null) {
+            int type = loc.pack.typeAt(loc.pos);
+            if (type == Pack.DELTA) {
+                return storedType(loc.pack.deltaBaseAt(loc.pos));
+            }
+            return type;
+        }
+        File loose = looseFile(id);
+        try (InputStream in = Files.newInputStream(loose.toPath())) {
+            return in.read() & ~COMPRESSED;
+        } catch (IOException excp) {
+            throw error("No object with that id exists.");
+        }
+    }
+
+    /** Returns the UIDs of the chunks of the blob with UID ID, in order,
+     *  or null if it is not stored chunked. */
+    List<String> chunks(String id) {
+        if (storedType(id) != CHUNKED) {
+            return null;
+        }
+        return ObjectCodec.decodeChunks(buffer(id, false));
+    }
+
+    /** Returns the contents of the object with UID ID as a read-only
+     *  buffer.  For packed objects not stored as deltas or chunked, this
+     *  is a view directly into the mapped pack. */
+    ByteBuffer buffer(String id) {
+        return buffer(id, true);
+    }
+
+    /** Returns the contents of the object with UID ID as a read-only
+     *  buffer, as for buffer(ID), except that the chunk list of a chunked
+     *  blob is returned as such unless ASSEMBLE. */
+    private ByteBuffer buffer(String id, boolean assemble) {
+        Located loc = findPacked(id);
+        int type;
+        ByteBuffer data;
+        if (loc != null) {
+            type = loc.pack.typeAt(loc.pos);
+            data = loc.pack.dataAt(loc.pos);
+            if (loc.pack.isCompressedAt(loc.pos)) {
+                data = ByteBuffer.wrap(inflate(data)).asReadOnlyBuffer();
+            }
+            if (type == Pack.DELTA) {
+                byte[] delta = new byte[data.remaining()];
+                data.get(delta);
+                byte[] base = get(loc.pack.deltaBaseAt(loc.pos));
+                return ByteBuffer.wrap(Delta.apply(base, delta))
+                    .asReadOnlyBuffer();
+            }
+        } else {
+            byte[] contents = readLoose(id);
+            type = contents[0];
+            data = ByteBuffer.wrap(contents, 1, contents.length - 1).slice()
+                .asReadOnlyBuffer();
+        }
+        if (type == CHUNKED && assemble) {
+            ByteArrayOutputStream result = new ByteArrayOutputStream();
+            for (String chunk : ObjectCodec.decodeChunks(data)) {
+                result.writeBytes(get(chunk));
+            }
+            return ByteBuffer.wrap(result.toByteArray()).asReadOnlyBuffer();
+        }
+        return data;
+    }
+
+    /** Returns the object with UID ID as decoded from its contents by
+     *  DECODER, taking it from the cache if possible.  Decoded objects are
+     *  shared, and so must be immutable. */
+    <T> T decode(String id, Function<ByteBuffer, T> decoder) {
+        @SuppressWarnings("unchecked")
+        T result = (T) cache.get(id);
+        if (result == null) {
+            ByteBuffer data = buffer(id);
+            int weight = data.remaining();
+            result = decoder.apply(data);
+            cache.put(id, result, weight);
+        }
+        return result;
+    }
+
+    /** Returns my cache of decoded objects. */
+    ObjectCache cache() {
+        return cache;
+    }
+
+    /** Returns the contents of the object with UID ID. */
+    byte[] get(String id) {
+        ByteBuffer buf = buffer(id);
+        byte[] result = new byte[buf.remaining()];
+        buf.get(result);
+        return result;
+    }
+
+    /** Write the contents of the object with UID ID to FILE, creating or
+     *  overwriting it.  Compressed loose objects are inflated a chunk at a
+     *  time, so that memory use is bounded regardless of object size. */
+    void writeTo(String id, File file) {
+        if (storedType(id) == CHUNKED) {
+            try (OutputStream out = Files.newOutputStream(file.toPath())) {
+                for (String chunk
+                         : ObjectCodec.decodeChunks(buffer(id, false))) {
+                    out.write(get(chunk));
+                }
+            } catch (IOException excp) {
+                throw new IllegalArgumentException(excp.getMessage());
+            }
+            return;
+        }
+        Located loc = findPacked(id);
+        if (loc != null) {
+            if (loc.pack.isCompressedAt(loc.pos)
+                && loc.pack.typeAt(loc.pos) != Pack.DELTA) {
+                try (OutputStream out =
+                         Files.newOutputStream(file.toPath())) {
+                    inflate(loc.pack.dataAt(loc.pos), out);
+                } catch (IOException excp) {
+                    throw new IllegalArgumentException(excp.getMessage());
+                }
+            } else {
+                writeContents(file, get(id));
+            }
+            return;
+        }
+        File loose = looseFile(id);
+        if (!loose.isFile()) {
+            throw error("No object with that id exists.");
+        }
+        Inflater inflater = new Inflater();
+        try (InputStream in = Files.newInputStream(loose.toPath());
+             OutputStream out = Files.newOutputStream(file.toPath())) {
+            InputStream body =
+                (in.read() & COMPRESSED) != 0
+                ? new InflaterInputStream(in, inflater, CHUNK_SIZE) : in;
+            byte[] buf = new byte[CHUNK_SIZE];
+            for (int n; (n = body.read(buf)) > 0; ) {
+                out.write(buf, 0, n);
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /** Move all loose objects into a single new pack, returning the number
+     *  of objects packed. */
+    int packLooseObjects() {
+        List<String> loose = looseIds();
+        if (loose.isEmpty()) {
+            return 0;
+        }
+        PackWriter writer = new PackWriter(packDir, level);
+        for (String id : loose) {
+            if (findPacked(id) == null) {
+                byte[] contents = readLoose(id);
+                byte[] data = new byte[contents.length - 1];
+                System.arraycopy(contents, 1, data, 0, data.length);
+                writer.add(id, contents[0], data);
+            }
+        }
+        if (writer.size() > 0) {
+            packs().add(writer.finish());
+        }
+        for (String id : loose) {
+            deleteLoose(id);
+        }
+        return writer.size();
+    }
+
+    /** Copy the objects with UIDs IDS that I lack from SOURCE into a
+     *  single new pack of mine, returning the number copied.  Chunked
+     *  blobs are copied as their chunk lists, and objects stored in SOURCE
+     *  as deltas are copied whole. */
+    int copyFrom(ObjectStore source, Collection<String> ids) {
+        PackWriter writer = new PackWriter(packDir, level);
+        for (String id : ids) {
+            if (!contains(id)) {
+                ByteBuffer data = source.buffer(id, false);
+                byte[] contents = new byte[data.remaining()];
+                data.get(contents);
+                writer.add(id, source.storedType(id), contents);
+            }
+        }
+        if (writer.size() > 0) {
+            packs().add(writer.finish());
+        }
+        return writer.size();
+    }
+
+    /** Rewrite every object, loose or packed, into a single new pack,
+     *  storing blobs as deltas where that saves at least half their size.
+     *  Blobs are considered in order of decreasing size, and each is
+     *  compared with the WINDOW blobs preceding it, taking as its base the
+     *  one giving the smallest delta, provided that base is not already
+     *  at the end of a chain of MAXDEPTH deltas.  Chunk lists are copied
+     *  as they are.  Objects are streamed into the pack, so that only the
+     *  blobs in the window are held in memory; each blob is therefore read
+     *  twice, once to find its size.  The new pack is made durable before
+     *  any object is deleted.  Returns the number of objects stored as
+     *  deltas. */
+    int repack(int window, int maxDepth) {
+        return repack(null, window, maxDepth);
+    }
+
+    /** Rewrite the objects whose UIDs are in KEEP, or all objects if KEEP
+     *  is null, into a single new pack as for repack(WINDOW, MAXDEPTH),
+     *  deleting all others.  Returns the number of objects stored as
+     *  deltas. */
+    int repack(Collection<String> keep, int window, int maxDepth) {
+        List<String> loose = looseIds();
+        List<Pack> oldPacks = new ArrayList<>(packs());
+        Collection<String> ids = keep == null ? ids() : keep;
+        if (ids.isEmpty()) {
+            return 0;
+        }
+
+        PackWriter writer = new PackWriter(packDir, level);
+        List<Candidate> blobs = new ArrayList<>();
+        for (String id : ids) {
+            int type = storedType(id);
+            if (type == BLOB) {
+                blobs.add(new Candidate(id, get(id).length));
+            } else {
+                ByteBuffer data = buffer(id, false);
+                byte[] contents = new byte[data.remaining()];
+                data.get(contents);
+                writer.add(id, type, contents);
+            }
+        }
+        blobs.sort((a, b) -> Integer.compare(b.size, a.size));
+
+        int deltas = 0;
+        ArrayDeque<Candidate> recent = new ArrayDeque<>();
+        for (Candidate target : blobs) {
+            target.data = get(target.id);
+            Candidate best = null;
+            byte[] bestDelta = null;
+            for (Candidate base : recent) {
+                if (base.depth >= maxDepth
+                    || base.size > 2 * target.size) {
+                    continue;
+                }
+                byte[] delta = Delta.create(base.data, target.data);
+                if (bestDelta == null || delta.length < bestDelta.length) {
+                    best = base;
+                    bestDelta = delta;
+                }
+            }
+            if (bestDelta != null && bestDelta.length < target.size / 2) {
+                target.depth = best.depth + 1;
+                writer.addDelta(target.id, best.id, bestDelta);
+                deltas += 1;
+            } else {
+                writer.add(target.id, BLOB, target.data);
+            }
+            recent.addLast(target);
+            if (recent.size() > window) {
+                recent.removeFirst().data = null;
+            }
+        }
+
+        Pack result = writer.finish();
+        packs.clear();
+        packs.add(result);
+        for (Pack pack : oldPacks) {
+            if (!pack.file().equals(result.file())) {
+                pack.indexFile().delete();
+                pack.bitmapFile().delete();
+                pack.file().delete();
+            }
+        }
+        for (String id : loose) {
+            deleteLoose(id);
+        }
+        return deltas;
+    }
+
+    /** Returns the UIDs of all my objects. */
+    TreeSet<String> ids() {
+        TreeSet<String> result = new TreeSet<>(looseIds());
+        for (Pack pack : packs()) {
+            for (int k = 0; k < pack.size(); k += 1) {
+                result.add(pack.uidAt(k));
+            }
+        }
+        return result;
+    }
+
+    /** Returns the UIDs of the objects reachable from the commit with UID
+     *  WANT but from none of the commits with UIDs HAVES, as found from
+     *  the reachability bitmaps of one of my packs (see Pack), or null if
+     *  no pack has bitmaps for all of these commits. */
+    List<String> bitmapDifference(String want, Collection<String> haves) {
+        for (Pack pack : packs()) {
+            Map<String, Bitmap> bitmaps = pack.bitmaps();
+            if (!bitmaps.containsKey(want)
+                || !bitmaps.keySet().containsAll(haves)) {
+                continue;
+            }
+            Bitmap difference = new Bitmap();
+            difference.or(bitmaps.get(want));
+            for (String have : haves) {
+                difference.andNot(bitmaps.get(have));
+            }
+            List<String> result = new ArrayList<>();
+            difference.forEach(k -> result.add(pack.uidAt(k)));
+            return result;
+        }
+        return null;
+    }
+
+    /** Returns the pack and position of the object with UID ID, or null if
+     *  it is not packed. */
+    private Located findPacked(String id) {
+        List<Pack> all = packs();
+        if (all.isEmpty() || id.length() != UID_LENGTH) {
+            return null;
+        }
+        byte[] raw = uidToBytes(id);
+        for (Pack pack : all) {
+            int pos = pack.find(raw);
+            if (pos >= 0) {
+                return new Located(pack, pos);
+            }
+        }
+        return null;
+    }
+
+    /** Returns the currently known packs, opening them on first use.
+     *  Safe to call from concurrent writers such as a parallel add. */
+    synchronized List<Pack> packs() {
+        if (packs == null) {
+            packs = new ArrayList<>();
+            File[] indices = packDir.listFiles((d, n) -> n.endsWith(".idx"));
+            if (indices != null) {
+                for (File idx : indices) {
+                    String name = idx.getName();
+                    packs.add(new Pack(join(packDir,
+                                            name.substring(0, name.length() - 4)
+                                            + ".pack")));
+                }
+            }
+        }
+        return packs;
+    }
+
+    /** Returns the full contents (type byte included) of the loose object
+     *  with UID ID, inflating them if they are compressed. */
+    private byte[] readLoose(String id) {
+        File file = looseFile(id);
+        if (!file.isFile()) {
+            throw error("No object with that id exists.");
+        }
+        byte[] contents = readContents(file);
+        if ((contents[0] & COMPRESSED) == 0) {
+            return contents;
+        }
+        try (InputStream in =
+                 new InflaterInputStream(
+                     new ByteArrayInputStream(contents, 1,
+                                              contents.length - 1))) {
+            ByteArrayOutputStream result = new ByteArrayOutputStream();
+            result.write(contents[0] & ~COMPRESSED);
+            in.transferTo(result);
+            return result.toByteArray();
+        } catch (IOException excp) {
+            throw error("Corrupt object: %s", id);
+        }
+    }
+
+    /** Returns the file holding the loose object with UID ID. */
+    private File looseFile(String id) {
+        return join(looseDir, id.substring(0, 2), id.substring(2));
+    }
+
+    /** Returns the UIDs of all loose objects. */
+    private List<String> looseIds() {
+        List<String> result = new ArrayList<>();
+        File[] dirs = looseDir.listFiles(File::isDirectory);
+        if (dirs == null) {
+            return result;
+        }
+        for (File dir : dirs) {
+            List<String> names = plainFilenamesIn(dir);
+            if (names != null) {
+                for (String name : names) {
+                    result.add(dir.getName() + name);
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Delete the loose object with UID ID, and its directory if that is
+     *  left empty. */
+    private void deleteLoose(String id) {
+        File file = looseFile(id);
+        file.delete();
+        file.getParentFile().delete();
+    }
+
+    /** A blob under consideration for delta compression by repack. */
+    private static class Candidate {
+        /** The blob with UID ID and SIZE bytes of contents. */
+        Candidate(String id, int size) {
+            this.id = id;
+            this.size = size;
+        }
+
+        /** UID. */
+        final String id;
+        /** Length of the contents. */
+        final int size;
+        /** Full contents, while the blob is in the delta window. */
+        byte[] data;
+        /** Length of the delta chain leading to this blob in the new pack
+         *  (0 if stored whole). */
+        int depth;
+    }
+
+    /** The position of an object within a pack. */
+    private static class Located {
+        /** Object at position POS in PACK. */
+        Located(Pack pack, int pos) {
+            this.pack = pack;
+            this.pos = pos;
+        }
+
+        /** The containing pack. */
+        final Pack pack;
+        /** Position within PACK's index. */
+        final int pos;
+    }
+
+    /** Directory of loose objects. */
+    private final File looseDir;
+    /** Directory of packs. */
+    private final File packDir;
+    /** Cache of decoded objects. */
+    private final ObjectCache cache;
+    /** Deflate level of new objects. */
+    private final int level;
+    /** Open packs, or null if not yet scanned. */
+    private List<Pack> packs;
+    /** Directories whose new entries have yet to be forced to disk. */
+    private final Set<File> unsynced = ConcurrentHashMap.newKeySet();
+}
@@ -0,0 +1,315 @@
+package gitlet;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+
+import static gitlet.Utils.*;
+
+/** A read-only view of one pack of Gitlet objects.  A pack consists of two
+ *  files: pack-SUM.pack, holding the objects themselves, one after the
+ *  other, and pack-SUM.idx, holding their UIDs in sorted order.  Both are
+ *  memory-mapped, so that locating an object is a binary search over the
+ *  mapped index and reading it requires no copying.  The .pack file is
+ *  mapped in segments of SEGMENT_SIZE bytes, each as needed, so that it
+ *  may be larger than a single mapping can hold; each segment overlaps
+ *  the next by SEGMENT_OVERLAP bytes, and the rare entry that does not
+ *  lie within one segment is mapped on its own.
+ *
+ *  The .pack file has the layout
+ *      MAGIC VERSION COUNT ENTRY... CHECKSUM
+ *  where each ENTRY is
+ *      TYPE:1 LENGTH:4 DATA:LENGTH
+ *  except that an entry of type DELTA stores its object as a Delta against
+ *  another object, the base, in the form
+ *      DELTA:1 LENGTH:4 BASE:20 DELTA:LENGTH-20
+ *  where BASE is the raw UID of the base.  If the ObjectStore.COMPRESSED
+ *  bit is set in TYPE, DATA (or, for DELTA entries, the delta following
+ *  BASE) is Deflate-compressed.  CHECKSUM is the raw SHA-1 hash of
+ *  everything preceding it.
+ *
+ *  The .idx file has the layout
+ *      MAGIC VERSION FANOUT:256*4 UIDS:COUNT*20 OFFSETS:COUNT*8 CHECKSUM
+ *  where FANOUT[b] is the number of objects whose UID begins with a byte
+ *  <= b, UIDS are the raw object UIDs in increasing order, OFFSETS[k] is
+ *  the position in the .pack file of the entry for UIDS[k], and CHECKSUM
+ *  is a copy of the .pack file's CHECKSUM.
+ *
+ *  A pack written by gc also has a file pack-SUM.bitmap of reachability
+ *  bitmaps, with the layout
+ *      MAGIC VERSION COUNT ENTRY...
+ *  where each ENTRY is
+ *      UID:20 BITMAP
+ *  giving, for the commit with raw UID UID, the set of index positions
+ *  of the objects reachable from it as a Bitmap.
+ */
+class Pack {
+
+    /** Magic number at the start of a .pack file ("GLPK"). */
+    static final int PACK_MAGIC = 0x474c504b;
+    /** Magic number at the start of a .idx file ("GLIX"). */
+    static final int INDEX_MAGIC = 0x474c4958;
+    /** Magic number at the start of a .bitmap file ("GLBM"). */
+    static final int BITMAP_MAGIC = 0x474c424d;
+    /** Current version of all pack files.  Version 1 packs, which
+     *  predate compressed entries, are read as well. */
+    static final int VERSION = 2;
+    /** Size of the .pack header. */
+    static final int PACK_HEADER_SIZE = 12;
+    /** Size of the .idx header, including the fanout table. */
+    static final int INDEX_HEADER_SIZE = 8 + 256 * 4;
+    /** Size of an entry header in the .pack file. */
+    static final int ENTRY_HEADER_SIZE = 5;
+    /** Entry type of an object stored as a delta against a base. */
+    static final int DELTA = 0x40;
+    /** Distance between the starts of successive mapped segments of a
+     *  .pack file. */
+    static final long SEGMENT_SIZE = 1L << 30;
+    /** Number of bytes by which each mapped segment extends into the
+     *  next. */
+    static final long SEGMENT_OVERLAP = 1L << 20;
+
+    /** A Pack read from PACKFILE, whose index is in the file of the same
+     *  name with extension .idx. */
+    Pack(File packFile) {
+        this(packFile,
+             new File(packFile.getParentFile(),
+                      packFile.getName().substring(
+                          0, packFile.getName().length() - 5) + ".idx"));
+    }
+
+    /** A Pack read from PACKFILE, whose index is in INDEXFILE.  Throws a
+     *  GitletException if they are not a well-formed pack. */
+    Pack(File packFile, File indexFile) {
+        this.packFile = packFile;
+        this.indexFile = indexFile;
+        String name = packFile.getName();
+        packSize = packFile.length();
+        segments = new ByteBuffer[(int) ((packSize - 1) / SEGMENT_SIZE + 1)];
+        index = mapContents(indexFile);
+        if (packSize < PACK_HEADER_SIZE || index.limit() < INDEX_HEADER_SIZE
+            || index.getInt(0) != INDEX_MAGIC || index.getInt(4) > VERSION) {
+            throw error("Corrupt pack: %s", name);
+        }
+        ByteBuffer header = region(0, PACK_HEADER_SIZE);
+        if (header.getInt(0) != PACK_MAGIC || header.getInt(4) > VERSION) {
+            throw error("Corrupt pack: %s", name);
+        }
+        count = index.getInt(INDEX_HEADER_SIZE - 4);
+        if (count != header.getInt(8)
+            || index.limit() != INDEX_HEADER_SIZE
+                                + (long) count * (UID_BYTES + 8)
+                                + UID_BYTES) {
+            throw error("Pack index does not match pack: %s", name);
+        }
+        uidsStart = INDEX_HEADER_SIZE;
+        offsetsStart = uidsStart + count * UID_BYTES;
+    }
+
+    /** Returns the .pack file underlying me. */
+    File file() {
+        return packFile;
+    }
+
+    /** Returns the .idx file underlying me. */
+    File indexFile() {
+        return indexFile;
+    }
+
+    /** Returns the .bitmap file belonging to me, which may not exist. */
+    File bitmapFile() {
+        String name = packFile.getName();
+        return new File(packFile.getParentFile(),
+                        name.substring(0, name.length() - 5) + ".bitmap");
+    }
+
+    /** Returns my reachability bitmaps, by commit UID, reading them on
+     *  first use.  The result is empty if I have none. */
+    synchronized Map<String, Bitmap> bitmaps() {
+        if (bitmaps == null) {
+            bitmaps = new HashMap<>();
+            File file = bitmapFile();
+            if (file.isFile()) {
+                ByteBuffer in = mapContents(file);
+                if (in.getInt() != BITMAP_MAGIC || in.getInt() != VERSION) {
+                    throw error("Corrupt pack bitmaps: %s", file.getName());
+                }
+                byte[] id = new byte[UID_BYTES];
+                for (int n = in.getInt(); n > 0; n -= 1) {
+                    in.get(id);
+                    bitmaps.put(bytesToUid(id, 0, UID_BYTES),
+                                Bitmap.read(in));
+                }
+            }
+        }
+        return bitmaps;
+    }
+
+    /** Write BITMAPS, sets of my index positions by commit UID, as my
+     *  reachability bitmaps. */
+    void writeBitmaps(Map<String, Bitmap> newBitmaps) {
+        try {
+            File tmp = createTempFile(packFile.getParentFile(), ".bitmap");
+            try (DataOutputStream out = new DataOutputStream(
+                     new BufferedOutputStream(
+                         Files.newOutputStream(tmp.toPath())))) {
+                out.writeInt(BITMAP_MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(newBitmaps.size());
+                for (Map.Entry<String, Bitmap> entry
+                         : newBitmaps.entrySet()) {
+                    out.write(uidToBytes(entry.getKey()));
+                    entry.getValue().write(out);
+                }
+            }
+            force(tmp);
+            Files.move(tmp.toPath(), bitmapFile().toPath(),
+                       StandardCopyOption.ATOMIC_MOVE,
+                       StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        bitmaps = new HashMap<>(newBitmaps);
+    }
+
+    /** Returns the number of objects in this pack. */
+    int size() {
+        return count;
+    }
+
+    /** Returns the position in my index of the object whose raw UID is
+     *  ID, or -1 if I do not contain it. */
+    int find(byte[] id) {
+        int first = id[0] & 0xff;
+        int lo = first == 0 ? 0 : index.getInt(8 + (first - 1) * 4);
+        int hi = index.getInt(8 + first * 4) - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int c = compareUid(mid, id, UID_BYTES);
+            if (c < 0) {
+                lo = mid + 1;
+            } else if (c > 0) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /** Returns the hexadecimal UID of the object at position K of my
+     *  index. */
+    String uidAt(int k) {
+        byte[] id = new byte[UID_BYTES];
+        index.get(uidsStart + k * UID_BYTES, id);
+        return bytesToUid(id, 0, UID_BYTES);
+    }
+
+    /** Returns the type of the object at position K of my index. */
+    int typeAt(int k) {
+        return Byte.toUnsignedInt(region(offsetAt(k), 1).get(0))
+            & ~ObjectStore.COMPRESSED;
+    }
+
+    /** Returns true iff the contents of the object at position K of my
+     *  index are compressed. */
+    boolean isCompressedAt(int k) {
+        return (region(offsetAt(k), 1).get(0) & ObjectStore.COMPRESSED) != 0;
+    }
+
+    /** Returns the contents of the object at position K of my index, as a
+     *  read-only view into the mapped pack, compressed if
+     *  isCompressedAt(K).  For a DELTA entry, this is the delta, without
+     *  the base UID. */
+    ByteBuffer dataAt(int k) {
+        long start = offsetAt(k) + ENTRY_HEADER_SIZE;
+        int length = region(offsetAt(k) + 1, 4).getInt(0);
+        if (typeAt(k) == DELTA) {
+            start += UID_BYTES;
+            length -= UID_BYTES;
+        }
+        return region(start, length).asReadOnlyBuffer();
+    }
+
+    /** Returns the UID of the base of the DELTA entry at position K of my
+     *  index. */
+    String deltaBaseAt(int k) {
+        byte[] id = new byte[UID_BYTES];
+        region(offsetAt(k) + ENTRY_HEADER_SIZE, UID_BYTES).get(0, id);
+        return bytesToUid(id, 0, UID_BYTES);
+    }
+
+    /** Returns a view of the LENGTH bytes of my .pack file starting at
+     *  OFFSET. */
+    private ByteBuffer region(long offset, int length) {
+        if (offset < 0 || length < 0 || offset + length > packSize) {
+            throw error("Corrupt pack: %s", packFile.getName());
+        }
+        int s = (int) (offset / SEGMENT_SIZE);
+        long start = s * SEGMENT_SIZE;
+        ByteBuffer segment = segment(s);
+        if (offset + length <= start + segment.limit()) {
+            return segment.slice((int) (offset - start), length);
+        }
+        return mapContents(packFile, offset, length);
+    }
+
+    /** Returns segment S of my .pack file, mapping it on first use. */
+    private synchronized ByteBuffer segment(int s) {
+        if (segments[s] == null) {
+            long start = s * SEGMENT_SIZE;
+            segments[s] = mapContents(packFile, start,
+                                      Math.min(packSize - start,
+                                               SEGMENT_SIZE
+                                               + SEGMENT_OVERLAP));
+        }
+        return segments[s];
+    }
+
+    /** Returns the offset in the .pack file of the entry at position K of
+     *  my index. */
+    long offsetAt(int k) {
+        return index.getLong(offsetsStart + k * 8);
+    }
+
+    /** Compares the first LEN bytes of the UID at position K of my index
+     *  with those of ID, returning a value <0, 0, or >0 as for
+     *  compareTo. */
+    int compareUid(int k, byte[] id, int len) {
+        int base = uidsStart + k * UID_BYTES;
+        for (int i = 0; i < len; i += 1) {
+            int c = (index.get(base + i) & 0xff) - (id[i] & 0xff);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return 0;
+    }
+
+    /** The .pack file. */
+    private final File packFile;
+    /** The .idx file. */
+    private final File indexFile;
+    /** The size of the .pack file. */
+    private final long packSize;
+    /** The mapped segments of the .pack file, each null until first
+     *  used. */
+    private final ByteBuffer[] segments;
+    /** The mapped contents of the .idx file. */
+    private final MappedByteBuffer index;
+    /** Number of objects in this pack. */
+    private final int count;
+    /** Position in INDEX of the sorted UID table. */
+    private final int uidsStart;
+    /** Position in INDEX of the offset table. */
+    private final int offsetsStart;
+    /** My reachability bitmaps, or null if not yet read. */
+    private Map<String, Bitmap> bitmaps;
+}
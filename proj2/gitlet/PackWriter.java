@@ -0,0 +1,210 @@
+package gitlet;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import static gitlet.Utils.*;
+
+/** Writes objects out as a new pack (see Pack).  Objects are appended to
+ *  a temporary .pack file as they are added, compressed where that pays
+ *  (see ObjectStore.deflate), so that only the UIDs and offsets of the
+ *  objects are held in memory.  Finishing the pack fills in its object
+ *  count and checksum, writes its index, forces both to disk, and checks
+ *  that they can be read as a Pack before moving them into place, the
+ *  .idx file last, so that a pack becomes visible to readers only once
+ *  it is complete and durable.
+ */
+class PackWriter {
+
+    /** A writer of a pack in directory DIR, compressing objects at Deflate
+     *  level LEVEL. */
+    PackWriter(File dir, int level) {
+        this.dir = dir;
+        this.level = level;
+    }
+
+    /** Add the object with hexadecimal UID ID, type TYPE, and contents
+     *  DATA to the pack being built. */
+    void add(String id, int type, byte[] data) {
+        byte[] packed = ObjectStore.deflate(data, level);
+        if (packed != null) {
+            type |= ObjectStore.COMPRESSED;
+            data = packed;
+        }
+        append(id, type, null, data);
+    }
+
+    /** Add the object with hexadecimal UID ID to the pack being built,
+     *  stored as DELTA against the object whose UID is BASE. */
+    void addDelta(String id, String base, byte[] delta) {
+        int type = Pack.DELTA;
+        byte[] packed = ObjectStore.deflate(delta, level);
+        if (packed != null) {
+            type |= ObjectStore.COMPRESSED;
+            delta = packed;
+        }
+        append(id, type, uidToBytes(base), delta);
+    }
+
+    /** Returns the number of objects added so far. */
+    int size() {
+        return entries.size();
+    }
+
+    /** Complete the pack of the objects added, of which there must be at
+     *  least one, and return it. */
+    Pack finish() {
+        File tmpIndex = null;
+        try {
+            out.close();
+            byte[] checksum;
+            try (FileChannel channel =
+                     FileChannel.open(tmpPack.toPath(),
+                                      StandardOpenOption.READ,
+                                      StandardOpenOption.WRITE)) {
+                channel.write(ByteBuffer.allocate(4)
+                              .putInt(0, entries.size()), 8);
+                MessageDigest md = MessageDigest.getInstance("SHA-1");
+                ByteBuffer buf = ByteBuffer.allocate(CHUNK_SIZE);
+                channel.position(0);
+                while (channel.read(buf) >= 0) {
+                    buf.flip();
+                    md.update(buf);
+                    buf.clear();
+                }
+                checksum = md.digest();
+                channel.write(ByteBuffer.wrap(checksum));
+                channel.force(true);
+            }
+            tmpIndex = createTempFile(dir, ".tmp");
+            writeIndex(tmpIndex, checksum);
+            force(tmpIndex);
+            new Pack(tmpPack, tmpIndex);
+            String name = "pack-" + bytesToUid(checksum, 0, UID_BYTES);
+            File packFile = join(dir, name + ".pack");
+            Files.move(tmpPack.toPath(), packFile.toPath(),
+                       StandardCopyOption.ATOMIC_MOVE);
+            Files.move(tmpIndex.toPath(), join(dir, name + ".idx").toPath(),
+                       StandardCopyOption.ATOMIC_MOVE);
+            force(dir);
+            return new Pack(packFile);
+        } catch (IOException excp) {
+            discard(tmpIndex);
+            throw new IllegalArgumentException(excp.getMessage());
+        } catch (RuntimeException excp) {
+            discard(tmpIndex);
+            throw excp;
+        } catch (NoSuchAlgorithmException excp) {
+            throw new IllegalArgumentException("System does not support SHA-1");
+        }
+    }
+
+    /** Delete my temporary .pack file and TMPINDEX, if not null. */
+    private void discard(File tmpIndex) {
+        tmpPack.delete();
+        if (tmpIndex != null) {
+            tmpIndex.delete();
+        }
+    }
+
+    /** Append an entry of type TYPE for the object with hexadecimal UID
+     *  ID, holding the raw UID BASE, if not null, followed by DATA, to my
+     *  temporary .pack file, creating it if need be. */
+    private void append(String id, int type, byte[] base, byte[] data) {
+        try {
+            if (out == null) {
+                dir.mkdirs();
+                tmpPack = createTempFile(dir, ".tmp");
+                out = new DataOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(tmpPack.toPath())));
+                out.writeInt(Pack.PACK_MAGIC);
+                out.writeInt(Pack.VERSION);
+                out.writeInt(0);
+            }
+            int length = data.length + (base == null ? 0 : UID_BYTES);
+            entries.add(new Entry(uidToBytes(id), offset));
+            out.writeByte(type);
+            out.writeInt(length);
+            if (base != null) {
+                out.write(base);
+            }
+            out.write(data);
+            offset += Pack.ENTRY_HEADER_SIZE + length;
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Write the index for the current entries into INDEXFILE, with pack
+     *  checksum CHECKSUM. */
+    private void writeIndex(File indexFile, byte[] checksum)
+        throws IOException {
+        Entry[] sorted = entries.toArray(new Entry[0]);
+        Arrays.sort(sorted, Comparator.comparing(e -> e.id,
+                                                 Arrays::compareUnsigned));
+        int[] fanout = new int[256];
+        for (Entry e : sorted) {
+            fanout[e.id[0] & 0xff] += 1;
+        }
+        for (int i = 1; i < 256; i += 1) {
+            fanout[i] += fanout[i - 1];
+        }
+        try (DataOutputStream out = new DataOutputStream(
+                 new BufferedOutputStream(
+                     Files.newOutputStream(indexFile.toPath())))) {
+            out.writeInt(Pack.INDEX_MAGIC);
+            out.writeInt(Pack.VERSION);
+            for (int n : fanout) {
+                out.writeInt(n);
+            }
+            for (Entry e : sorted) {
+                out.write(e.id);
+            }
+            for (Entry e : sorted) {
+                out.writeLong(e.offset);
+            }
+            out.write(checksum);
+        }
+    }
+
+    /** The location of one object written to the pack. */
+    private static class Entry {
+        /** An entry for an object with raw UID ID at position OFFSET of
+         *  the .pack file. */
+        Entry(byte[] id, long offset) {
+            this.id = id;
+            this.offset = offset;
+        }
+
+        /** Raw UID. */
+        final byte[] id;
+        /** Position of this entry in the .pack file. */
+        final long offset;
+    }
+
+    /** Directory of the pack. */
+    private final File dir;
+    /** Deflate level of the objects added. */
+    private final int level;
+    /** The temporary .pack file, or null if nothing has been added. */
+    private File tmpPack;
+    /** The stream writing TMPPACK. */
+    private DataOutputStream out;
+    /** Position in TMPPACK of the next entry. */
+    private long offset = Pack.PACK_HEADER_SIZE;
+    /** The objects added so far, in order. */
+    private final List<Entry> entries = new ArrayList<>();
+}
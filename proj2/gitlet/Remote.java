@@ -0,0 +1,207 @@
+package gitlet;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import static gitlet.Utils.*;
+
+/** One end of a transfer of commits by push or fetch: a repository's
+ *  object database, commit graph, commit indices, and branch heads.  The
+ *  local end shares the objects of Repository; the other end is another
+ *  repository's .gitlet directory, laid out as described in Repository.
+ *
+ *  A transfer sends the commits reachable from one wanted commit that
+ *  the receiver does not have.  The receiver's commit graph is its set of
+ *  haves: a commit enters a graph only after its parents, so the walk
+ *  back from the wanted commit stops at the first commits the receiver
+ *  has.  Likewise a repository that has a tree has everything under it,
+ *  so the trees of the sent commits are walked only down to the subtrees
+ *  and blobs the receiver already has.  The objects found missing are
+ *  copied as a single new pack, after which the commits are added to
+ *  the receiver's commit graph, oldest first.  The cost of a transfer is
+ *  thus proportional to what is sent, not to the length of the
+ *  history.  Where the sender has reachability bitmaps (see Pack) for
+ *  the wanted commit and for each of the receiver's commits at which the
+ *  walk stopped, the objects to send are instead the difference of
+ *  those bitmaps, and no trees are read.
+ */
+class Remote {
+
+    /** The end made of the branch heads in BRANCHESDIR, the objects in
+     *  OBJECTS, the commit graph GRAPH, the message index MESSAGES, and
+     *  the commit log LOG, whose branch heads are read and written
+     *  through JOURNAL. */
+    Remote(File branchesDir, ObjectStore objects, CommitGraph graph,
+           MessageIndex messages, CommitLog log, Journal journal) {
+        this.branchesDir = branchesDir;
+        this.objects = objects;
+        this.graph = graph;
+        this.messages = messages;
+        this.log = log;
+        this.journal = journal;
+    }
+
+    /** Returns the repository whose .gitlet directory is DIR, completing
+     *  the updates of any command interrupted there by a crash. */
+    static Remote open(File dir) {
+        if (!dir.isDirectory()) {
+            throw error("Remote directory not found.");
+        }
+        File journalFile = join(dir, "journal");
+        Journal.recover(journalFile);
+        Journal journal = new Journal(journalFile);
+        int level = new Config(journal, join(dir, "config"))
+            .getInt("compression");
+        return new Remote(join(dir, "refs", "heads"),
+                          new ObjectStore(join(dir, "objects"),
+                                          join(dir, "packs"),
+                                          Repository.OBJECT_CACHE_BYTES,
+                                          level),
+                          new CommitGraph(join(dir, "commit-graph"),
+                                          join(dir, "commit-graph.tail")),
+                          new MessageIndex(join(dir, "message-index")),
+                          new CommitLog(join(dir, "commit-log")),
+                          journal);
+    }
+
+    /** Returns the UID of the head of BRANCH, or null if there is no such
+     *  branch. */
+    String head(String branch) {
+        File ref = join(branchesDir, branch);
+        return journal.exists(ref) ? journal.readString(ref) : null;
+    }
+
+    /** Makes the commit with UID ID the head of BRANCH, creating BRANCH
+     *  if need be. */
+    void setHead(String branch, String id) {
+        journal.write(join(branchesDir, branch), id);
+    }
+
+    /** Durably applies my pending updates to branch heads (see
+     *  Journal), after forcing my new objects and commits to disk. */
+    void flush() {
+        objects.sync();
+        graph.sync();
+        journal.commit();
+    }
+
+    /** Returns true iff the commit with UID ANCESTOR is in my graph and
+     *  is the commit with UID ID or one of its ancestors. */
+    boolean isAncestor(String ancestor, String id) {
+        int node = graph.find(ancestor);
+        return node != CommitGraph.NONE
+            && graph.isAncestor(node, graph.find(id));
+    }
+
+    /** Copies to TO the commit with UID WANT and those of its ancestors
+     *  that TO lacks, with their trees and blobs, returning the number of
+     *  commits copied. */
+    int sendTo(Remote to, String want) {
+        List<String> haves = new ArrayList<>();
+        List<String> commits = missingCommits(to, want, haves);
+        Collection<String> ids = commits.isEmpty() ? commits
+            : objects.bitmapDifference(want, haves);
+        if (ids == null) {
+            LinkedHashSet<String> found = new LinkedHashSet<>();
+            for (String id : commits) {
+                found.add(id);
+                addMissingTree(to, readCommit(id).getTree(), found);
+            }
+            ids = found;
+        }
+        to.objects.copyFrom(objects, ids);
+        for (String id : commits) {
+            Commit commit = readCommit(id);
+            to.graph.add(id, commit.getParent(), commit.getSecondParent(),
+                         commit.getTimestamp().getTime());
+            if (to.messages.exists()) {
+                to.messages.add(id, commit.getMessage());
+            }
+            if (to.log.exists()) {
+                to.log.add(id, commit);
+            }
+        }
+        return commits.size();
+    }
+
+    /** Returns the UIDs of the commit with UID WANT and those of its
+     *  ancestors that are not in TO's graph, parents before children,
+     *  adding to HAVES the UIDs of the commits in TO's graph at which the
+     *  search stopped. */
+    private List<String> missingCommits(Remote to, String want,
+                                        List<String> haves) {
+        ArrayList<Integer> missing = new ArrayList<>();
+        ArrayList<Integer> work = new ArrayList<>();
+        HashSet<Integer> seen = new HashSet<>();
+        work.add(graph.find(want));
+        while (!work.isEmpty()) {
+            int node = work.remove(work.size() - 1);
+            if (to.graph.find(graph.id(node)) != CommitGraph.NONE) {
+                haves.add(graph.id(node));
+                continue;
+            }
+            missing.add(node);
+            for (int i = 0; i < 2; i += 1) {
+                int p = graph.parent(node, i);
+                if (p != CommitGraph.NONE && seen.add(p)) {
+                    work.add(p);
+                }
+            }
+        }
+        missing.sort(Comparator.comparingInt(graph::generation));
+        List<String> result = new ArrayList<>();
+        for (int node : missing) {
+            result.add(graph.id(node));
+        }
+        return result;
+    }
+
+    /** Adds to IDS the UID of the tree with UID ID and of the objects
+     *  under it, unless TO has it or IDS already holds it. */
+    private void addMissingTree(Remote to, String id,
+                                LinkedHashSet<String> ids) {
+        if (ids.contains(id) || to.objects.contains(id)) {
+            return;
+        }
+        ids.add(id);
+        for (Tree.Entry entry : Tree.read(objects, id).entries().values()) {
+            if (entry.isTree()) {
+                addMissingTree(to, entry.id, ids);
+            } else if (!ids.contains(entry.id)
+                       && !to.objects.contains(entry.id)) {
+                ids.add(entry.id);
+                List<String> chunks = objects.chunks(entry.id);
+                if (chunks != null) {
+                    for (String chunk : chunks) {
+                        if (!to.objects.contains(chunk)) {
+                            ids.add(chunk);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /** Returns the commit whose UID is ID. */
+    private Commit readCommit(String id) {
+        return objects.decode(id, ObjectCodec::decodeCommit);
+    }
+
+    /** Directory of branch heads. */
+    private final File branchesDir;
+    /** The object database. */
+    private final ObjectStore objects;
+    /** The commit graph. */
+    private final CommitGraph graph;
+    /** The index of commit messages. */
+    private final MessageIndex messages;
+    /** The log of all commits. */
+    private final CommitLog log;
+    /** The journal through which branch heads are read and written. */
+    private final Journal journal;
+}
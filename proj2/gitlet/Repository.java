@@ -1,29 +1,1372 @@
 package gitlet;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
-import static gitlet.Utils.*;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
 
-// TODO: any imports you need here
+import static gitlet.Utils.*;
 
-/** Represents a gitlet repository.
- *  TODO: It's a good idea to give a description here of what else this Class
- *  does at a high level.
+/** Represents a gitlet repository.  The commands of Gitlet are
+ *  implemented here as static methods that act on the repository in the
+ *  current working directory.
+ *
+ *  The structure of a Gitlet repository is as follows:
  *
- *  @author TODO
+ *  .gitlet/
+ *     - HEAD -- name of the current branch
+ *     - config -- settings of the repository (see Config)
+ *     - sparse-checkout -- patterns confining the working tree to part of
+ *       the tracked files, if any (see SparseCheckout)
+ *     - index -- the staging area (see StagingArea)
+ *     - refs/heads/ -- one file per branch, holding the UID of its head;
+ *       branches fetched from remote R are under refs/heads/R/
+ *     - remotes/ -- one file per remote, holding the path of its .gitlet
+ *       directory (see Remote)
+ *     - objects/ -- loose blobs, trees, and commits (see ObjectStore)
+ *     - packs/ -- packed blobs, trees, and commits (see Pack)
+ *     - commit-graph, commit-graph.tail -- parents, generation numbers,
+ *       and times of all commits (see CommitGraph)
+ *     - message-index -- hashes of the messages of all commits (see
+ *       MessageIndex)
+ *     - commit-log -- every commit ever made, in order (see CommitLog)
+ *     - blame/ -- cached attributions of the lines of files (see Blame)
+ *     - watch/ -- lock, log, and cookies of the working-tree watcher,
+ *       and the state last read from them by status (see Watcher)
+ *     - journal -- present only while a command is applying its updates
+ *       to HEAD, branch heads, and the index (see Journal)
  */
 public class Repository {
-    /**
-     * TODO: add instance variables here.
-     *
-     * List all instance variables of the Repository class here with a useful
-     * comment above them describing what that variable represents and how that
-     * variable is used. We've provided two examples for you.
-     */
 
     /** The current working directory. */
     public static final File CWD = new File(System.getProperty("user.dir"));
     /** The .gitlet directory. */
     public static final File GITLET_DIR = join(CWD, ".gitlet");
+    /** The directory of loose objects (blobs, trees, and commits). */
+    public static final File OBJECTS_DIR = join(GITLET_DIR, "objects");
+    /** The directory of object packs and their indices. */
+    public static final File PACKS_DIR = join(GITLET_DIR, "packs");
+    /** The directory of branch heads. */
+    public static final File BRANCHES_DIR = join(GITLET_DIR, "refs", "heads");
+    /** The directory of remotes. */
+    public static final File REMOTES_DIR = join(GITLET_DIR, "remotes");
+    /** The file naming the current branch. */
+    public static final File HEAD_FILE = join(GITLET_DIR, "HEAD");
+    /** The file holding the staging area. */
+    public static final File INDEX_FILE = join(GITLET_DIR, "index");
+    /** The file holding the settings of the repository. */
+    public static final File CONFIG_FILE = join(GITLET_DIR, "config");
+    /** The file holding the sparse-checkout patterns. */
+    public static final File SPARSE_FILE =
+        join(GITLET_DIR, "sparse-checkout");
+
+    /** The file holding the base of the commit graph. */
+    public static final File GRAPH_FILE = join(GITLET_DIR, "commit-graph");
+    /** The file holding commits added since the commit graph's base was
+     *  written. */
+    public static final File GRAPH_TAIL_FILE =
+        join(GITLET_DIR, "commit-graph.tail");
+    /** The directory of the working-tree watcher. */
+    public static final File WATCH_DIR = join(GITLET_DIR, "watch");
+    /** The journal of an interrupted command's updates, if any. */
+    public static final File JOURNAL_FILE = join(GITLET_DIR, "journal");
+    /** The file holding the index of commit messages. */
+    public static final File MESSAGE_INDEX_FILE =
+        join(GITLET_DIR, "message-index");
+    /** The file holding the log of all commits. */
+    public static final File COMMIT_LOG_FILE = join(GITLET_DIR, "commit-log");
+    /** The directory of cached blame results. */
+    public static final File BLAME_DIR = join(GITLET_DIR, "blame");
+
+    /** Number of preceding blobs against which repack tries to
+     *  delta-compress each blob. */
+    static final int REPACK_WINDOW = 10;
+    /** Longest chain of deltas repack will create. */
+    static final int MAX_DELTA_DEPTH = 10;
+    /** Fewest files for which add uses more than one thread. */
+    static final int PARALLEL_ADD_THRESHOLD = 8;
+    /** Fewest files for which checkout and reset use more than one
+     *  thread. */
+    static final int PARALLEL_CHECKOUT_THRESHOLD = 64;
+    /** Most files in one unit of work of a parallel checkout. */
+    static final int CHECKOUT_BATCH_SIZE = 256;
+    /** Greatest total size in bytes of the encoded commits and trees whose
+     *  decoded forms are cached (see ObjectCache). */
+    static final long OBJECT_CACHE_BYTES = 8 << 20;
+
+    /** The object database, opened on first use. */
+    private static ObjectStore objects;
+
+    /** Returns the object database of this repository, from which all
+     *  commands read blobs, trees, and commits. */
+    static ObjectStore objects() {
+        if (objects == null) {
+            objects = new ObjectStore(OBJECTS_DIR, PACKS_DIR,
+                                      OBJECT_CACHE_BYTES,
+                                      config().getInt("compression"));
+        }
+        return objects;
+    }
+
+    /** The commit graph, opened on first use. */
+    private static CommitGraph graph;
+
+    /** Returns the commit graph of this repository. */
+    static CommitGraph graph() {
+        if (graph == null) {
+            graph = new CommitGraph(GRAPH_FILE, GRAPH_TAIL_FILE);
+        }
+        return graph;
+    }
+
+    /** The index of commit messages, opened on first use. */
+    private static MessageIndex messages;
+
+    /** Returns the index of commit messages of this repository. */
+    static MessageIndex messages() {
+        if (messages == null) {
+            messages = new MessageIndex(MESSAGE_INDEX_FILE);
+        }
+        return messages;
+    }
+
+    /** The log of all commits, opened on first use. */
+    private static CommitLog commitLog;
+
+    /** Returns the log of all commits of this repository. */
+    static CommitLog commitLog() {
+        if (commitLog == null) {
+            commitLog = new CommitLog(COMMIT_LOG_FILE);
+        }
+        return commitLog;
+    }
+
+    /** The settings of this repository, read on first use. */
+    private static Config config;
+
+    /** Returns the settings of this repository. */
+    static Config config() {
+        if (config == null) {
+            config = new Config(journal(), CONFIG_FILE);
+        }
+        return config;
+    }
+
+    /** The sparse-checkout patterns of this repository, read on first
+     *  use. */
+    private static SparseCheckout sparse;
+
+    /** Returns the sparse-checkout patterns of this repository. */
+    static SparseCheckout sparse() {
+        if (sparse == null) {
+            sparse = new SparseCheckout(journal(), SPARSE_FILE);
+        }
+        return sparse;
+    }
+
+    /** The journal of updates to HEAD, branch heads, and the index made
+     *  by the current command, created on first use. */
+    private static Journal journal;
+
+    /** Returns the journal through which all commands read and write
+     *  HEAD, the branch heads, and the index. */
+    static Journal journal() {
+        if (journal == null) {
+            journal = new Journal(JOURNAL_FILE);
+        }
+        return journal;
+    }
+
+    /** Durably applies the updates the current command has made to HEAD,
+     *  the branch heads, and the index (see Journal), after first forcing
+     *  to disk the objects and commits to which they may refer. */
+    static void flush() {
+        if (objects != null) {
+            objects.sync();
+        }
+        if (graph != null) {
+            graph.sync();
+        }
+        if (journal != null) {
+            journal.commit();
+        }
+    }
+
+    /** Throws a GitletException unless the current directory holds an
+     *  initialized Gitlet repository.  Completes the updates of any
+     *  command interrupted by a crash. */
+    static void checkInitialized() {
+        if (!GITLET_DIR.isDirectory()) {
+            throw error("Not in an initialized Gitlet directory.");
+        }
+        Journal.recover(JOURNAL_FILE);
+    }
+
+    /** Creates a new repository in the current directory, with a single
+     *  branch, master, pointing to an empty initial commit. */
+    public static void init() {
+        if (GITLET_DIR.exists()) {
+            throw error("A Gitlet version-control system already exists in"
+                        + " the current directory.");
+        }
+        GITLET_DIR.mkdir();
+        OBJECTS_DIR.mkdir();
+        PACKS_DIR.mkdir();
+        BRANCHES_DIR.mkdirs();
+        Commit initial = new Commit("initial commit", new Date(0), null, null,
+                                    new Tree().write(objects()));
+        String id = writeCommit(initial);
+        graph().add(id, null, null, initial.getTimestamp().getTime());
+        messages().add(id, initial.getMessage());
+        commitLog().add(id, initial);
+        journal().write(join(BRANCHES_DIR, "master"), id);
+        journal().write(HEAD_FILE, "master");
+        new StagingArea().save(journal(), INDEX_FILE);
+    }
+
+    /** Stages the files NAMES for addition.  The operand "." stands for
+     *  every file in the working tree within the sparse checkout (see
+     *  SparseCheckout), outside of which no file may be added.  A file
+     *  identical to its version in the current commit is unstaged
+     *  instead.  The files are hashed and stored in parallel, but the
+     *  resulting staging area does not depend on the order in which they
+     *  finish. */
+    public static void add(List<String> names) {
+        checkInitialized();
+        TreeSet<String> files = new TreeSet<>();
+        for (String name : names) {
+            if (name.equals(".")) {
+                files.addAll(workingFiles());
+            } else if (!join(CWD, name).isFile()) {
+                throw error("File does not exist.");
+            } else if (!sparse().includes(name)) {
+                throw error("File is outside the sparse checkout.");
+            } else {
+                files.add(name);
+            }
+        }
+        TreeMap<String, StagingArea.Stat> blobs =
+            storeBlobs(new ArrayList<>(files));
+        Map<String, String> tracked = checkedOutFiles(headCommit());
+        StagingArea stage = StagingArea.load(journal(), INDEX_FILE);
+        for (String name : blobs.keySet()) {
+            String id = blobs.get(name).blob;
+            stage.recordStat(name, blobs.get(name));
+            if (id.equals(tracked.get(name))) {
+                stage.unstage(name);
+            } else {
+                stage.add(name, id);
+            }
+        }
+        stage.save(journal(), INDEX_FILE);
+    }
+
+    /** Makes a new commit with log message MESSAGE on the current branch,
+     *  tracking the files of the current commit as modified by the staging
+     *  area. */
+    public static void commit(String message) {
+        commit(message, null);
+    }
+
+    /** Makes a new commit with log message MESSAGE and second parent
+     *  SECONDPARENT (null if none) on the current branch, returning its
+     *  UID.  Only the trees on the paths to staged files are rewritten;
+     *  all others are shared with the parent commit. */
+    static String commit(String message, String secondParent) {
+        checkInitialized();
+        if (message.isBlank()) {
+            throw error("Please enter a commit message.");
+        }
+        StagingArea stage = StagingArea.load(journal(), INDEX_FILE);
+        if (stage.isEmpty()) {
+            throw error("No changes added to the commit.");
+        }
+        String parent = headId();
+        TreeMap<String, String> changes = new TreeMap<>(stage.getAdded());
+        for (String name : stage.getRemoved()) {
+            changes.put(name, null);
+        }
+        String tree = Tree.update(objects(), readCommit(parent).getTree(),
+                                  changes);
+        Commit commit = new Commit(message, new Date(), parent, secondParent,
+                                   tree);
+        String id = writeCommit(commit);
+        graph().add(id, parent, secondParent,
+                    commit.getTimestamp().getTime());
+        messages().add(id, message);
+        commitLog().add(id, commit);
+        journal().write(join(BRANCHES_DIR, currentBranch()), id);
+        stage.clear();
+        stage.save(journal(), INDEX_FILE);
+        return id;
+    }
+
+    /** Prints the history of the current branch, from its head back to
+     *  the initial commit along first parents. */
+    public static void log() {
+        checkInitialized();
+        for (String id = headId(); id != null; ) {
+            Commit commit = readCommit(id);
+            printLogEntry(id, commit);
+            id = commit.getParent();
+        }
+    }
+
+    /** Prints every commit ever made, newest first.  The commits are read
+     *  from the commit log (see CommitLog), which is first rebuilt from the
+     *  commit graph, in order of commit time, if it is missing or
+     *  damaged. */
+    public static void globalLog() {
+        checkInitialized();
+        try {
+            if (commitLog().exists()) {
+                commitLog().forEachNewestFirst(Repository::printLogEntry);
+                return;
+            }
+        } catch (GitletException excp) {
+            commitLog().clear();
+        }
+        CommitGraph g = graph();
+        List<Integer> nodes = new ArrayList<>();
+        for (int node = 0; node < g.size(); node += 1) {
+            nodes.add(node);
+        }
+        nodes.sort(Comparator.comparingLong(g::time));
+        for (int node : nodes) {
+            commitLog().add(g.id(node), readCommit(g.id(node)));
+        }
+        commitLog().forEachNewestFirst(Repository::printLogEntry);
+    }
+
+    /** Prints the UIDs of all commits with log message MESSAGE.  Only the
+     *  commits whose message hashes match in the message index are read.
+     *  A missing or corrupt index is rebuilt from the commit graph. */
+    public static void find(String message) {
+        checkInitialized();
+        List<String> candidates = null;
+        try {
+            if (messages().exists()) {
+                candidates = messages().candidates(message);
+            }
+        } catch (GitletException excp) {
+            messages().clear();
+        }
+        if (candidates == null) {
+            CommitGraph g = graph();
+            for (int node = 0; node < g.size(); node += 1) {
+                messages().add(g.id(node), readCommit(g.id(node))
+                               .getMessage());
+            }
+            candidates = messages().candidates(message);
+        }
+        boolean found = false;
+        for (String id : candidates) {
+            if (readCommit(id).getMessage().equals(message)) {
+                System.out.println(id);
+                found = true;
+            }
+        }
+        if (!found) {
+            throw error("Found no commit with that message.");
+        }
+    }
+
+    /** Prints the branches, the staged and removed files, the tracked
+     *  files modified but not staged, and the untracked files.  Working
+     *  files are hashed only when their stat data differ from those
+     *  cached in the index (or are racy), so the cost is proportional to
+     *  the number of changed files rather than to the size of the
+     *  tree.  While a watcher runs (see Watcher), the tree is not even
+     *  listed, and only the files it reports changed are statted.  Only
+     *  paths within the sparse checkout (see SparseCheckout) are
+     *  considered, and directories outside it are not searched. */
+    public static void status() {
+        checkInitialized();
+        StagingArea stage = StagingArea.load(journal(), INDEX_FILE);
+        Map<String, String> tracked = checkedOutFiles(headCommit());
+        Map<String, String> added = stage.getAdded();
+        Set<String> removed = stage.getRemoved();
+        Watcher.Snapshot snapshot =
+            Watcher.snapshot(CWD, WATCH_DIR, journal());
+        TreeSet<String> working;
+        if (snapshot == null) {
+            working = workingFiles();
+        } else {
+            working = new TreeSet<>(snapshot.files());
+            working.removeIf(name -> !sparse().includes(name));
+        }
+
+        System.out.println("=== Branches ===");
+        String current = currentBranch();
+        for (String branch : journal().list(BRANCHES_DIR)) {
+            System.out.println((branch.equals(current) ? "*" : "") + branch);
+        }
+        System.out.println();
+        printSection("Staged Files", added.keySet());
+        printSection("Removed Files", removed);
+
+        TreeSet<String> modified = new TreeSet<>();
+        TreeSet<String> candidates = new TreeSet<>(tracked.keySet());
+        candidates.addAll(added.keySet());
+        for (String name : candidates) {
+            String expected = added.containsKey(name) ? added.get(name)
+                : removed.contains(name) ? null : tracked.get(name);
+            if (expected == null) {
+                continue;
+            } else if (!working.contains(name)) {
+                modified.add(name + " (deleted)");
+            } else if (!expected.equals(currentBlob(stage, snapshot,
+                                                    name))) {
+                modified.add(name + " (modified)");
+            }
+        }
+        printSection("Modifications Not Staged For Commit", modified);
+
+        TreeSet<String> untracked = new TreeSet<>();
+        for (String name : working) {
+            if (!added.containsKey(name)
+                && (!tracked.containsKey(name) || removed.contains(name))) {
+                untracked.add(name);
+            }
+        }
+        printSection("Untracked Files", untracked);
+
+        for (String name : candidates) {
+            if (!working.contains(name)) {
+                stage.forgetStat(name);
+            }
+        }
+        if (stage.statsChanged()) {
+            stage.save(journal(), INDEX_FILE);
+        }
+        if (snapshot != null) {
+            snapshot.save(journal());
+        }
+    }
+
+    /** Runs a watcher of the working tree (see Watcher) until killed. */
+    public static void watch() {
+        checkInitialized();
+        new Watcher(CWD, WATCH_DIR, GITLET_DIR).watch();
+    }
+
+    /** Restores working file NAME to its version in the commit whose UID
+     *  is or begins with COMMITID (the head commit if null), without
+     *  staging it. */
+    public static void checkoutFile(String commitId, String name) {
+        checkInitialized();
+        String id = commitId == null ? headId() : resolveCommit(commitId);
+        String blob = Tree.lookup(objects(), readCommit(id).getTree(), name);
+        if (blob == null) {
+            throw error("File does not exist in that commit.");
+        }
+        File file = join(CWD, name);
+        file.getParentFile().mkdirs();
+        objects().writeTo(blob, file);
+    }
+
+    /** Makes BRANCH the current branch, replacing the working files
+     *  tracked by the current head with those of BRANCH's head. */
+    public static void checkoutBranch(String branch) {
+        checkInitialized();
+        File ref = join(BRANCHES_DIR, branch);
+        if (!journal().exists(ref)) {
+            throw error("No such branch exists.");
+        }
+        if (branch.equals(currentBranch())) {
+            throw error("No need to checkout the current branch.");
+        }
+        switchTo(journal().readString(ref));
+        journal().write(HEAD_FILE, branch);
+    }
+
+    /** Moves the head of the current branch to the commit whose UID is or
+     *  begins with COMMITID, replacing the working files tracked by the
+     *  current head with those of that commit. */
+    public static void reset(String commitId) {
+        checkInitialized();
+        String id = resolveCommit(commitId);
+        switchTo(id);
+        journal().write(join(BRANCHES_DIR, currentBranch()), id);
+    }
+
+    /** Creates a new branch named NAME pointing at the head commit. */
+    public static void branch(String name) {
+        checkInitialized();
+        File ref = join(BRANCHES_DIR, name);
+        if (journal().exists(ref)) {
+            throw error("A branch with that name already exists.");
+        }
+        journal().write(ref, headId());
+    }
+
+    /** Deletes the branch named NAME, but none of its commits. */
+    public static void rmBranch(String name) {
+        checkInitialized();
+        File ref = join(BRANCHES_DIR, name);
+        if (!journal().exists(ref)) {
+            throw error("A branch with that name does not exist.");
+        }
+        if (name.equals(currentBranch())) {
+            throw error("Cannot remove the current branch.");
+        }
+        journal().delete(ref);
+    }
+
+    /** Merges the head of branch GIVEN into the current branch.  Only
+     *  files changed on the given branch since the split point are
+     *  touched, found by comparing root trees; files changed on both
+     *  branches are merged line by line (see Diff.merge), and conflicting
+     *  regions are written between conflict markers.  Files outside the
+     *  sparse checkout (see SparseCheckout) are merged into the commit
+     *  but not written. */
+    public static void merge(String given) {
+        checkInitialized();
+        StagingArea stage = StagingArea.load(journal(), INDEX_FILE);
+        if (!stage.isEmpty()) {
+            throw error("You have uncommitted changes.");
+        }
+        File ref = join(BRANCHES_DIR, given);
+        if (!journal().exists(ref)) {
+            throw error("A branch with that name does not exist.");
+        }
+        String current = currentBranch();
+        if (given.equals(current)) {
+            throw error("Cannot merge a branch with itself.");
+        }
+        String headId = headId();
+        String givenId = journal().readString(ref);
+        String split = splitPoint(headId, givenId);
+        if (givenId.equals(split)) {
+            message("Given branch is an ancestor of the current branch.");
+            return;
+        }
+        if (headId.equals(split)) {
+            switchTo(givenId);
+            journal().write(join(BRANCHES_DIR, current), givenId);
+            message("Current branch fast-forwarded.");
+            return;
+        }
+
+        String headTree = readCommit(headId).getTree();
+        String splitTree = readCommit(split).getTree();
+        TreeMap<String, String> ours =
+            Tree.diff(objects(), splitTree, headTree);
+        TreeMap<String, String> theirs =
+            Tree.diff(objects(), splitTree, readCommit(givenId).getTree());
+        theirs.entrySet().removeIf(e -> ours.containsKey(e.getKey())
+                                   && Objects.equals(ours.get(e.getKey()),
+                                                     e.getValue()));
+        for (String name : theirs.keySet()) {
+            if (sparse().includes(name) && join(CWD, name).exists()
+                && !ours.containsKey(name)
+                && Tree.lookup(objects(), headTree, name) == null) {
+                throw error("There is an untracked file in the way;"
+                            + " delete it, or add and commit it first.");
+            }
+        }
+
+        boolean conflict = false;
+        for (Map.Entry<String, String> change : theirs.entrySet()) {
+            String name = change.getKey();
+            File file = join(CWD, name);
+            boolean write = sparse().includes(name);
+            if (!ours.containsKey(name)) {
+                if (change.getValue() == null) {
+                    if (write) {
+                        file.delete();
+                    }
+                    stage.forgetStat(name);
+                    stage.remove(name);
+                } else {
+                    if (write) {
+                        file.getParentFile().mkdirs();
+                        objects().writeTo(change.getValue(), file);
+                    }
+                    stage.add(name, change.getValue());
+                }
+                continue;
+            }
+            String base = Tree.lookup(objects(), splitTree, name);
+            String mine = ours.get(name);
+            String other = change.getValue();
+            ByteArrayOutputStream merged = new ByteArrayOutputStream();
+            if (mine == null || other == null) {
+                merged.writeBytes("<<<<<<< HEAD\n".getBytes());
+                writeConflictSide(merged, mine);
+                merged.writeBytes("=======\n".getBytes());
+                writeConflictSide(merged, other);
+                merged.writeBytes(">>>>>>>\n".getBytes());
+                conflict = true;
+            } else {
+                conflict |= Diff.merge(lines(base), lines(mine),
+                                       lines(other), merged);
+            }
+            if (write) {
+                file.getParentFile().mkdirs();
+                writeContents(file, merged.toByteArray());
+            }
+            stage.add(name, objects().put(ObjectStore.BLOB,
+                                          merged.toByteArray()));
+        }
+        stage.save(journal(), INDEX_FILE);
+        commit(String.format("Merged %s into %s.", given, current), givenId);
+        if (conflict) {
+            message("Encountered a merge conflict.");
+        }
+    }
+
+    /** Prints the differences, as unified diffs, between the files of
+     *  commits FROM and TO, named by UIDs or their prefixes.  If TO is
+     *  null, compares with the working files instead, and if FROM is also
+     *  null, compares the head commit with the working files.  Commits
+     *  are compared by root trees, skipping identical subtrees; working
+     *  files whose cached stat data are unchanged are not read, and those
+     *  outside the sparse checkout (see SparseCheckout) are ignored. */
+    public static void diff(String from, String to) {
+        checkInitialized();
+        String fromId = from == null ? headId() : resolveCommit(from);
+        String fromTree = readCommit(fromId).getTree();
+        TreeMap<String, String> changes;
+        StagingArea stage = null;
+        if (to != null) {
+            changes = Tree.diff(objects(), fromTree,
+                                readCommit(resolveCommit(to)).getTree());
+        } else {
+            stage = StagingArea.load(journal(), INDEX_FILE);
+            TreeMap<String, String> tracked =
+                checkedOutFiles(readCommit(fromId));
+            TreeSet<String> names = new TreeSet<>(tracked.keySet());
+            names.addAll(stage.getAdded().keySet());
+            changes = new TreeMap<>();
+            for (String name : names) {
+                File file = join(CWD, name);
+                String blob = file.isFile() ? stage.workingBlob(name, file)
+                    : null;
+                if (!Objects.equals(blob, tracked.get(name))) {
+                    changes.put(name, blob);
+                }
+            }
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (Map.Entry<String, String> change : changes.entrySet()) {
+            String name = change.getKey();
+            String oldBlob = Tree.lookup(objects(), fromTree, name);
+            byte[] newData =
+                change.getValue() == null ? new byte[0]
+                : to == null ? readContents(join(CWD, name))
+                : objects().get(change.getValue());
+            out.writeBytes(("diff --git a/" + name + " b/" + name + "\n")
+                           .getBytes());
+            Diff.unified(lines(oldBlob),
+                         oldBlob == null ? "/dev/null" : "a/" + name,
+                         new Diff.Lines(newData),
+                         change.getValue() == null ? "/dev/null"
+                         : "b/" + name, out);
+        }
+        try {
+            out.writeTo(System.out);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        System.out.flush();
+        if (stage != null && stage.statsChanged()) {
+            stage.save(journal(), INDEX_FILE);
+        }
+    }
+
+    /** Prints each line of file NAME in the commit whose UID is or begins
+     *  with COMMITID (the head commit if null), preceded by the abbreviated
+     *  UID and the date of the commit that last changed it (see Blame).
+     *  The dates come from the commit graph, so no commits are read to
+     *  print them. */
+    public static void blame(String commitId, String name) {
+        checkInitialized();
+        String id = commitId == null ? headId() : resolveCommit(commitId);
+        String[] commits = new Blame(objects(), graph(), BLAME_DIR)
+            .blame(id, name);
+        if (commits == null) {
+            throw error("File does not exist in that commit.");
+        }
+        Diff.Lines lines = new Diff.Lines(objects().get(
+            Tree.lookup(objects(), readCommit(id).getTree(), name)));
+        int width = Integer.toString(lines.size()).length();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int k = 0; k < lines.size(); k += 1) {
+            long time = graph().time(graph().find(commits[k]));
+            out.writeBytes(String.format("%s (%s %" + width + "d) ",
+                                         commits[k].substring(0, 8),
+                                         formatDate(new Date(time)), k + 1)
+                           .getBytes());
+            lines.writeLine(out, k);
+        }
+        try {
+            out.writeTo(System.out);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        System.out.flush();
+    }
+
+    /** Rewrites all objects into a single pack, storing revisions of
+     *  similar blobs as deltas against one another. */
+    public static void repack() {
+        checkInitialized();
+        ObjectStore store = objects();
+        int deltas = store.repack(REPACK_WINDOW, MAX_DELTA_DEPTH);
+        int total = 0;
+        for (Pack pack : store.packs()) {
+            total += pack.size();
+        }
+        message("Packed %d objects (%d as deltas).", total, deltas);
+    }
+
+    /** Deletes every object not reachable from a branch head or the
+     *  staging area, and packs the rest as for repack.  The reachable
+     *  commits are marked as a Bitmap over the commit graph, which is
+     *  then rewritten to hold only them; the message index is dropped, to
+     *  be rebuilt on demand, and the commit log is rewritten.  The new
+     *  pack gets reachability bitmaps (see Pack) for each branch head and
+     *  root commit, with which push and fetch find the objects to send
+     *  (see Remote). */
+    public static void gc() {
+        checkInitialized();
+        CommitGraph g = graph();
+        TreeSet<String> tips = new TreeSet<>();
+        for (String branch : journal().list(BRANCHES_DIR)) {
+            tips.add(journal().readString(join(BRANCHES_DIR, branch)));
+        }
+        Bitmap commits = new Bitmap();
+        for (String tip : tips) {
+            commits.or(g.ancestors(g.find(tip)));
+        }
+        HashSet<String> keep = new HashSet<>();
+        commits.forEach(node -> walkObjects(g.id(node), keep::add));
+        StagingArea stage = StagingArea.load(journal(), INDEX_FILE);
+        for (String blob : stage.getAdded().values()) {
+            walkBlob(blob, keep::add);
+        }
+        int removed = objects().ids().size() - keep.size();
+
+        List<String> ids = new ArrayList<>();
+        List<Commit> logged = new ArrayList<>();
+        try {
+            if (commitLog().exists()) {
+                commitLog().forEachNewestFirst((id, commit) -> {
+                    if (commits.contains(g.find(id))) {
+                        ids.add(id);
+                        logged.add(commit);
+                    }
+                });
+            }
+        } catch (GitletException excp) {
+            ids.clear();
+        }
+        commitLog().clear();
+        for (int i = ids.size() - 1; i >= 0; i -= 1) {
+            commitLog().add(ids.get(i), logged.get(i));
+        }
+        messages().clear();
+        g.retain(commits);
+
+        int deltas = objects().repack(keep, REPACK_WINDOW, MAX_DELTA_DEPTH);
+        Pack pack = objects().packs().get(0);
+        for (int node = 0; node < g.size(); node += 1) {
+            if (g.parent(node, 0) == CommitGraph.NONE) {
+                tips.add(g.id(node));
+            }
+        }
+        TreeMap<String, Bitmap> bitmaps = new TreeMap<>();
+        for (String tip : tips) {
+            Bitmap reachable = new Bitmap();
+            g.ancestors(g.find(tip)).forEach(node -> walkObjects(
+                g.id(node), id -> {
+                    int k = pack.find(uidToBytes(id));
+                    if (reachable.contains(k)) {
+                        return false;
+                    }
+                    reachable.add(k);
+                    return true;
+                }));
+            bitmaps.put(tip, reachable);
+        }
+        pack.writeBitmaps(bitmaps);
+        message("Removed %d unreachable objects; packed %d objects"
+                + " (%d as deltas).", removed, keep.size(), deltas);
+    }
+
+    /** Prints the value of setting NAME, or sets it to VALUE if that is
+     *  non-null (see Config). */
+    public static void config(String name, String value) {
+        checkInitialized();
+        if (value == null) {
+            System.out.println(config().get(name));
+        } else {
+            config().set(name, value);
+        }
+    }
+
+    /** Confines the working tree to the tracked files matched by
+     *  PATTERNS (see SparseCheckout), or to none of them if PATTERNS is
+     *  empty, writing the files of the head commit newly matched and
+     *  deleting those no longer matched.  Fails, changing nothing, if
+     *  anything is staged, if a file to be deleted differs from the head
+     *  commit's version, or if a file to be written is in the way. */
+    public static void sparseCheckout(List<String> patterns) {
+        checkInitialized();
+        StagingArea stage = StagingArea.load(journal(), INDEX_FILE);
+        if (!stage.isEmpty()) {
+            throw error("You have uncommitted changes.");
+        }
+        SparseCheckout updated = new SparseCheckout(patterns);
+        Commit head = headCommit();
+        TreeMap<String, String> current = checkedOutFiles(head);
+        TreeMap<String, String> target =
+            Tree.flatten(objects(), head.getTree(), updated);
+        TreeSet<String> names = new TreeSet<>();
+        for (Map.Entry<String, String> entry : target.entrySet()) {
+            String name = entry.getKey();
+            File file = join(CWD, name);
+            if (current.containsKey(name)) {
+                continue;
+            } else if (file.exists() && !(file.isFile()
+                                          && entry.getValue()
+                                          .equals(ObjectStore.uid(file)))) {
+                throw error("There is an untracked file in the way;"
+                            + " delete it, or add and commit it first.");
+            }
+            names.add(name);
+        }
+        for (Map.Entry<String, String> entry : current.entrySet()) {
+            String name = entry.getKey();
+            File file = join(CWD, name);
+            if (target.containsKey(name)) {
+                continue;
+            } else if (file.isFile() && !entry.getValue()
+                       .equals(stage.workingBlob(name, file))) {
+                throw error("You have uncommitted changes.");
+            }
+            names.add(name);
+        }
+        updateWorkingFiles(names, target, stage);
+        stage.save(journal(), INDEX_FILE);
+        if (!updated.patterns().equals(sparse().patterns())) {
+            Watcher.discardState(WATCH_DIR, journal());
+        }
+        updated.save(journal(), SPARSE_FILE);
+        sparse = updated;
+    }
+
+    /** Prints the sparse-checkout patterns, one per line. */
+    public static void listSparseCheckout() {
+        checkInitialized();
+        for (String pattern : sparse().patterns()) {
+            System.out.println(pattern);
+        }
+    }
+
+    /** Records NAME as a remote whose .gitlet directory is DIR, a path
+     *  with components separated by '/', relative to the current
+     *  directory unless absolute. */
+    public static void addRemote(String name, String dir) {
+        checkInitialized();
+        File ref = join(REMOTES_DIR, name);
+        if (journal().exists(ref)) {
+            throw error("A remote with that name already exists.");
+        }
+        journal().write(ref, dir);
+    }
+
+    /** Forgets the remote NAME, but not the branches fetched from it. */
+    public static void rmRemote(String name) {
+        checkInitialized();
+        File ref = join(REMOTES_DIR, name);
+        if (!journal().exists(ref)) {
+            throw error("A remote with that name does not exist.");
+        }
+        journal().delete(ref);
+    }
+
+    /** Makes the head commit the head of branch BRANCH of remote NAME,
+     *  first copying to the remote only the commits and objects it lacks
+     *  (see Remote).  The remote branch's head must be the head commit or
+     *  one of its ancestors.  The remote's working files are not
+     *  touched. */
+    public static void push(String name, String branch) {
+        checkInitialized();
+        Remote remote = openRemote(name);
+        String head = headId();
+        String theirs = remote.head(branch);
+        if (theirs != null && !local().isAncestor(theirs, head)) {
+            throw error("Please pull down remote changes before pushing.");
+        }
+        local().sendTo(remote, head);
+        remote.setHead(branch, head);
+        remote.flush();
+    }
+
+    /** Copies the head of branch BRANCH of remote NAME, with only those
+     *  of its ancestors and objects that are missing here (see Remote),
+     *  making it the head of local branch NAME/BRANCH. */
+    public static void fetch(String name, String branch) {
+        checkInitialized();
+        Remote remote = openRemote(name);
+        String theirs = remote.head(branch);
+        if (theirs == null) {
+            throw error("That remote does not have that branch.");
+        }
+        remote.sendTo(local(), theirs);
+        local().setHead(name + "/" + branch, theirs);
+    }
+
+    /** Fetches branch BRANCH of remote NAME and merges it into the
+     *  current branch. */
+    public static void pull(String name, String branch) {
+        fetch(name, branch);
+        merge(name + "/" + branch);
+    }
+
+    /** Prints the counters of the object cache to the standard error, if
+     *  the object database has been opened. */
+    static void printStats() {
+        if (objects != null) {
+            System.err.println(objects.cache().stats());
+        }
+    }
+
+    /** Abbreviated English names of the days of the week, from
+     *  Thursday, the day of the epoch. */
+    private static final String[] DAYS = {
+        "Thu", "Fri", "Sat", "Sun", "Mon", "Tue", "Wed",
+    };
+    /** Abbreviated English names of the months, from March. */
+    private static final String[] MONTHS = {
+        "Mar", "Apr", "May", "Jun", "Jul", "Aug", "Sep", "Oct", "Nov",
+        "Dec", "Jan", "Feb",
+    };
+
+    /** Returns DATE in the default time zone, formatted as by the
+     *  format "%ta %tb %te %tT %tY %tz".  The fields are computed and
+     *  appended directly, because Formatter and java.time load locale
+     *  and time-zone data, and a long string concatenation spins up
+     *  method handles, whose initialization would otherwise account for
+     *  most of the running time of log. */
+    static String formatDate(Date date) {
+        long millis = date.getTime();
+        int offset = TimeZone.getDefault().getOffset(millis);
+        long seconds = Math.floorDiv(millis + offset, 1000);
+        long days = Math.floorDiv(seconds, 86400);
+        int time = Math.floorMod(seconds, 86400);
+        /* Civil date from days since the epoch, with years starting in
+         * March so that leap days fall at their ends. */
+        long shifted = days + 719468;
+        long era = Math.floorDiv(shifted, 146097);
+        int dayOfEra = (int) (shifted - era * 146097);
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524
+                         - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4
+                                    - yearOfEra / 100);
+        int month = (5 * dayOfYear + 2) / 153;
+        int day = dayOfYear - (153 * month + 2) / 5 + 1;
+        long year = era * 400 + yearOfEra + (month >= 10 ? 1 : 0);
+        int zone = Math.abs(offset) / 60_000;
+        StringBuilder result = new StringBuilder();
+        result.append(DAYS[Math.floorMod(days, 7)]).append(' ')
+            .append(MONTHS[month]).append(' ').append(day).append(' ');
+        appendTwoDigits(result, time / 3600).append(':');
+        appendTwoDigits(result, time / 60 % 60).append(':');
+        appendTwoDigits(result, time % 60).append(' ').append(year)
+            .append(offset < 0 ? " -" : " +");
+        appendTwoDigits(result, zone / 60);
+        appendTwoDigits(result, zone % 60);
+        return result.toString();
+    }
+
+    /** Appends N, which is less than 100, to OUT as two decimal digits,
+     *  and returns OUT. */
+    private static StringBuilder appendTwoDigits(StringBuilder out, int n) {
+        return out.append((char) ('0' + n / 10)).append((char) ('0' + n % 10));
+    }
+
+    /** Prints the log entry for COMMIT, whose UID is ID. */
+    static void printLogEntry(String id, Commit commit) {
+        System.out.println("===");
+        System.out.println("commit " + id);
+        if (commit.getSecondParent() != null) {
+            System.out.printf("Merge: %s %s%n",
+                              commit.getParent().substring(0, 7),
+                              commit.getSecondParent().substring(0, 7));
+        }
+        System.out.println("Date: " + formatDate(commit.getTimestamp()));
+        System.out.println(commit.getMessage());
+        System.out.println();
+    }
+
+    /** Returns the UID of a latest common ancestor (split point) of the
+     *  commits with UIDs A and B, computed over the commit graph. */
+    static String splitPoint(String a, String b) {
+        CommitGraph g = graph();
+        int base = g.mergeBase(g.find(a), g.find(b));
+        return base == CommitGraph.NONE ? null : g.id(base);
+    }
+
+    /** Prints a status section headed TITLE listing ITEMS, followed by
+     *  a blank line. */
+    private static void printSection(String title, Collection<String> items) {
+        System.out.printf("=== %s ===%n", title);
+        for (String item : items) {
+            System.out.println(item);
+        }
+        System.out.println();
+    }
+
+    /** Returns the name of the current branch. */
+    static String currentBranch() {
+        return journal().readString(HEAD_FILE);
+    }
+
+    /** Returns the UID of the head commit of the current branch. */
+    static String headId() {
+        return journal().readString(join(BRANCHES_DIR, currentBranch()));
+    }
+
+    /** Returns the full UID of the commit whose UID is or begins with ID,
+     *  found by binary search in the commit graph. */
+    static String resolveCommit(String id) {
+        int node = graph().findPrefix(id);
+        if (node == CommitGraph.NONE) {
+            throw error("No commit with that id exists.");
+        }
+        return graph().id(node);
+    }
+
+    /** Replaces the working files tracked by the head commit with those
+     *  of the commit with UID ID and clears the staging area.  Fails,
+     *  changing nothing, if a working file not tracked by the head commit
+     *  would be overwritten.  Files whose contents already match the
+     *  commit's, as judged by the stat cache where possible, are left
+     *  untouched (see checkoutFiles), and files outside the sparse
+     *  checkout are neither read nor written. */
+    private static void switchTo(String id) {
+        TreeMap<String, String> tracked = checkedOutFiles(headCommit());
+        TreeMap<String, String> target = checkedOutFiles(readCommit(id));
+        for (String name : target.keySet()) {
+            if (!tracked.containsKey(name) && join(CWD, name).exists()) {
+                throw error("There is an untracked file in the way;"
+                            + " delete it, or add and commit it first.");
+            }
+        }
+        TreeSet<String> names = new TreeSet<>(tracked.keySet());
+        names.addAll(target.keySet());
+        StagingArea stage = StagingArea.load(journal(), INDEX_FILE);
+        updateWorkingFiles(names, target, stage);
+        stage.clear();
+        stage.save(journal(), INDEX_FILE);
+    }
+
+    /** Brings each working file in NAMES to its version in TARGET as for
+     *  checkoutFiles, recording the resulting stat data in the cache of
+     *  STAGE. */
+    private static void updateWorkingFiles(Collection<String> names,
+                                           Map<String, String> target,
+                                           StagingArea stage) {
+        Map<String, StagingArea.Stat> stats =
+            checkoutFiles(names, target, stage);
+        for (String name : names) {
+            StagingArea.Stat stat = stats.get(name);
+            if (stat == null) {
+                stage.forgetStat(name);
+            } else {
+                stage.recordStat(name, stat);
+            }
+        }
+    }
+
+    /** Brings each working file in NAMES to its version in TARGET, a
+     *  mapping of paths to blob UIDs, deleting the files absent from
+     *  TARGET.  A file is rewritten only if its contents differ from the
+     *  target blob, as found from the stat cache of STAGE or, failing
+     *  that, by hashing it.  Returns a mapping of the names of the
+     *  files present afterwards to their stat data and blob UIDs.
+     *
+     *  The files are grouped by directory into batches of at most
+     *  CHECKOUT_BATCH_SIZE.  With PARALLEL_CHECKOUT_THRESHOLD or more
+     *  files, the batches are spread over a pool with one worker per
+     *  processor.  Workers only read STAGE. */
+    private static Map<String, StagingArea.Stat> checkoutFiles(
+        Collection<String> names, Map<String, String> target,
+        StagingArea stage) {
+        TreeMap<String, List<String>> directories = new TreeMap<>();
+        for (String name : names) {
+            int slash = name.lastIndexOf('/');
+            String dir = slash < 0 ? "" : name.substring(0, slash);
+            directories.computeIfAbsent(dir, k -> new ArrayList<>())
+                .add(name);
+        }
+        List<List<String>> batches = new ArrayList<>();
+        for (List<String> files : directories.values()) {
+            for (int i = 0; i < files.size(); i += CHECKOUT_BATCH_SIZE) {
+                int end = Math.min(files.size(), i + CHECKOUT_BATCH_SIZE);
+                batches.add(files.subList(i, end));
+            }
+        }
+        TreeMap<String, StagingArea.Stat> result = new TreeMap<>();
+        if (names.size() < PARALLEL_CHECKOUT_THRESHOLD) {
+            for (List<String> batch : batches) {
+                result.putAll(checkoutBatch(batch, target, stage));
+            }
+            return result;
+        }
+        List<Callable<Map<String, StagingArea.Stat>>> tasks =
+            new ArrayList<>();
+        for (List<String> batch : batches) {
+            tasks.add(() -> checkoutBatch(batch, target, stage));
+        }
+        for (Map<String, StagingArea.Stat> stats : runAll(tasks)) {
+            result.putAll(stats);
+        }
+        return result;
+    }
+
+    /** Brings the working files NAMES, all in one directory, to their
+     *  versions in TARGET as for checkoutFiles, returning the stat data
+     *  of those present afterwards. */
+    private static Map<String, StagingArea.Stat> checkoutBatch(
+        List<String> names, Map<String, String> target, StagingArea stage) {
+        Map<String, StagingArea.Stat> result = new TreeMap<>();
+        boolean madeDirectory = false;
+        for (String name : names) {
+            File file = join(CWD, name);
+            String blob = target.get(name);
+            if (blob == null) {
+                file.delete();
+                continue;
+            }
+            if (file.isFile()) {
+                StagingArea.Stat now = StagingArea.Stat.of(file, null);
+                if (blob.equals(stage.cachedBlob(name, now))
+                    || blob.equals(ObjectStore.uid(file))) {
+                    result.put(name, now.withBlob(blob));
+                    continue;
+                }
+            } else if (!madeDirectory) {
+                file.getParentFile().mkdirs();
+                madeDirectory = true;
+            }
+            objects().writeTo(blob, file);
+            result.put(name, StagingArea.Stat.of(file, blob));
+        }
+        return result;
+    }
+
+    /** Returns the lines of the blob with UID ID, or no lines if ID is
+     *  null. */
+    private static Diff.Lines lines(String id) {
+        return new Diff.Lines(id == null ? new byte[0] : objects().get(id));
+    }
+
+    /** Append the contents of the blob with UID ID (nothing if null) to
+     *  OUT as one side of a whole-file conflict, ending with a newline. */
+    private static void writeConflictSide(ByteArrayOutputStream out,
+                                          String id) {
+        Diff.Lines side = lines(id);
+        side.writeLines(out, 0, side.size());
+    }
+
+    /** Returns this repository as one end of a transfer of commits. */
+    private static Remote local() {
+        return new Remote(BRANCHES_DIR, objects(), graph(), messages(),
+                          commitLog(), journal());
+    }
+
+    /** Returns the remote recorded under NAME. */
+    private static Remote openRemote(String name) {
+        File ref = join(REMOTES_DIR, name);
+        if (!journal().exists(ref)) {
+            throw error("A remote with that name does not exist.");
+        }
+        String dir = journal().readString(ref);
+        return Remote.open(CWD.toPath()
+                           .resolve(dir.replace('/', File.separatorChar))
+                           .toFile());
+    }
+
+    /** Returns the UID of the contents of working file NAME, taken from
+     *  the stat cache of STAGE without even a stat if SNAPSHOT, when not
+     *  null, shows the file unchanged. */
+    private static String currentBlob(StagingArea stage,
+                                      Watcher.Snapshot snapshot,
+                                      String name) {
+        if (snapshot != null && !snapshot.mayHaveChanged(name)) {
+            String blob = stage.unchangedBlob(name);
+            if (blob != null) {
+                return blob;
+            }
+        }
+        return stage.workingBlob(name, join(CWD, name));
+    }
+
+    /** Calls VISIT on the UID of the commit ID and on those of the
+     *  objects under its tree, not descending into any object for which
+     *  VISIT returns false. */
+    private static void walkObjects(String id, Predicate<String> visit) {
+        if (visit.test(id)) {
+            walkTree(readCommit(id).getTree(), visit);
+        }
+    }
+
+    /** Calls VISIT on the UID of the tree ID and on those of the objects
+     *  under it, as for walkObjects. */
+    private static void walkTree(String id, Predicate<String> visit) {
+        if (!visit.test(id)) {
+            return;
+        }
+        for (Tree.Entry entry : Tree.read(objects(), id).entries().values()) {
+            if (entry.isTree()) {
+                walkTree(entry.id, visit);
+            } else {
+                walkBlob(entry.id, visit);
+            }
+        }
+    }
+
+    /** Calls VISIT on the UID of the blob ID and, if it is chunked and
+     *  VISIT returns true, on those of its chunks. */
+    private static void walkBlob(String id, Predicate<String> visit) {
+        if (visit.test(id)) {
+            List<String> chunks = objects().chunks(id);
+            if (chunks != null) {
+                for (String chunk : chunks) {
+                    visit.test(chunk);
+                }
+            }
+        }
+    }
+
+    /** Returns the head commit of the current branch. */
+    static Commit headCommit() {
+        return readCommit(headId());
+    }
+
+    /** Returns the commit whose UID is ID. */
+    static Commit readCommit(String id) {
+        return objects().decode(id, ObjectCodec::decodeCommit);
+    }
+
+    /** Returns a mapping of the paths of the files tracked by COMMIT that
+     *  are within the sparse checkout to their blob UIDs. */
+    static TreeMap<String, String> checkedOutFiles(Commit commit) {
+        SparseCheckout patterns = sparse();
+        return Tree.flatten(objects(), commit.getTree(),
+                            patterns.isEmpty() ? null : patterns);
+    }
+
+    /** Returns the paths, relative to CWD and separated by '/', of all
+     *  plain files in the working tree outside of GITLET_DIR and within
+     *  the sparse checkout.  Directories outside it are not listed. */
+    static TreeSet<String> workingFiles() {
+        TreeSet<String> result = new TreeSet<>();
+        workingFiles(CWD, "", result);
+        return result;
+    }
+
+    /** Add the paths of the plain files under DIR within the sparse
+     *  checkout, prefixed by PREFIX, to RESULT. */
+    private static void workingFiles(File dir, String prefix,
+                                     TreeSet<String> result) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            String path = prefix + file.getName();
+            if (file.isFile()) {
+                if (sparse().includes(path)) {
+                    result.add(path);
+                }
+            } else if (file.isDirectory() && !file.equals(GITLET_DIR)
+                       && sparse().mayInclude(path)) {
+                workingFiles(file, path + "/", result);
+            }
+        }
+    }
+
+    /** Stores COMMIT in the object database, returning its UID. */
+    static String writeCommit(Commit commit) {
+        return objects().put(ObjectStore.COMMIT,
+                             ObjectCodec.encodeCommit(commit));
+    }
+
+    /** Stores the working files NAMES as blobs, returning a mapping of
+     *  each name to its stat data and blob UID.  With
+     *  PARALLEL_ADD_THRESHOLD or more files, the work is spread over a
+     *  pool with one worker per processor. */
+    private static TreeMap<String, StagingArea.Stat> storeBlobs(
+        List<String> names) {
+        TreeMap<String, StagingArea.Stat> result = new TreeMap<>();
+        if (names.size() < PARALLEL_ADD_THRESHOLD) {
+            for (String name : names) {
+                result.put(name, storeBlob(name));
+            }
+            return result;
+        }
+        List<Callable<StagingArea.Stat>> tasks = new ArrayList<>();
+        for (String name : names) {
+            tasks.add(() -> storeBlob(name));
+        }
+        List<StagingArea.Stat> stats = runAll(tasks);
+        for (int i = 0; i < names.size(); i += 1) {
+            result.put(names.get(i), stats.get(i));
+        }
+        return result;
+    }
+
+    /** Returns the results of TASKS, in order, running them on a pool
+     *  with one worker per processor.  An exception thrown by a task is
+     *  rethrown. */
+    private static <T> List<T> runAll(List<Callable<T>> tasks) {
+        ForkJoinPool pool = new ForkJoinPool();
+        try {
+            List<T> result = new ArrayList<>();
+            for (Future<T> future : pool.invokeAll(tasks)) {
+                result.add(future.get());
+            }
+            return result;
+        } catch (ExecutionException excp) {
+            if (excp.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) excp.getCause();
+            }
+            throw new IllegalArgumentException(excp.getCause());
+        } catch (InterruptedException excp) {
+            throw error("Interrupted.");
+        } finally {
+            pool.shutdown();
+        }
+    }
 
-    /* TODO: fill in the rest of this class. */
+    /** Stores working file NAME as a blob, returning its stat data and
+     *  blob UID.  The stat data are taken first, so that a change made
+     *  while the file is being read will show up as a stat mismatch. */
+    private static StagingArea.Stat storeBlob(String name) {
+        File file = join(CWD, name);
+        StagingArea.Stat stat = StagingArea.Stat.of(file, null);
+        return stat.withBlob(objects().putFile(file));
+    }
 }
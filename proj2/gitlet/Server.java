@@ -0,0 +1,185 @@
+package gitlet;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/** The batch mode of Gitlet, in which one process runs many commands
+ *  against the repository in the current directory, keeping its object
+ *  cache, packs, and commit graph open between them.
+ *
+ *  Commands are read one per line, as a command name and its operands
+ *  separated by blanks; an operand containing blanks may be enclosed in
+ *  double quotes, within which \" and \\ stand for " and \.  Blank lines
+ *  are ignored.
+ *
+ *  Durable updates are group-committed: the journaled updates (see
+ *  Journal) of successive commands accumulate until no further input is
+ *  waiting or GROUP_LIMIT commands have run, and are then made durable
+ *  together with a single fsync.  The output of each command is held
+ *  back until its updates are durable, so that a client never sees a
+ *  command's result before a crash could no longer undo it.  The updates
+ *  of a command that fails are discarded, as they would be were it run
+ *  alone, and the server goes on to the next command.  A failure other
+ *  than a GitletException is reported on the error stream, in a line of
+ *  the form
+ *      # COMMAND failed: EXCEPTION
+ *  After each group, a line of the form
+ *      # COMMAND: RUN ms run, DURABLE ms to durable
+ *  is written to the error stream for each of its commands, giving the
+ *  time spent running it and the time from its start until its group was
+ *  committed.  At the end of input, a summary line is written there as
+ *  well.
+ */
+class Server {
+
+    /** Most commands whose updates are committed together. */
+    static final int GROUP_LIMIT = 64;
+
+    /** A server reading commands from IN, writing their output to OUT and
+     *  its latency reports to ERR. */
+    Server(InputStream in, PrintStream out, PrintStream err) {
+        this.in = new BufferedReader(
+            new InputStreamReader(in, StandardCharsets.UTF_8));
+        this.out = out;
+        this.err = err;
+    }
+
+    /** Run commands until the end of the input. */
+    void serve() {
+        PrintStream stdout = System.out;
+        System.setOut(new PrintStream(held, true));
+        try {
+            for (String line = in.readLine(); line != null;
+                 line = in.readLine()) {
+                long start = System.nanoTime();
+                if (line.isBlank()) {
+                    continue;
+                }
+                String name = line.strip().split("\\s+", 2)[0];
+                names.add(name);
+                Journal.Snapshot before = Repository.journal().snapshot();
+                try {
+                    Main.run(parse(line));
+                } catch (GitletException excp) {
+                    Repository.journal().restore(before);
+                    System.out.println(excp.getMessage());
+                } catch (RuntimeException excp) {
+                    Repository.journal().restore(before);
+                    err.printf("# %s failed: %s%n", name, excp);
+                }
+                starts.add(start);
+                runs.add(System.nanoTime() - start);
+                if (names.size() >= GROUP_LIMIT || !in.ready()) {
+                    commitGroup();
+                }
+            }
+            commitGroup();
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        } finally {
+            System.setOut(stdout);
+        }
+        if (!latencies.isEmpty()) {
+            latencies.sort(null);
+            int n = latencies.size();
+            err.printf("# %d commands: median %.3f ms, 99th percentile "
+                       + "%.3f ms to durable%n", n,
+                       latencies.get(n / 2) / 1e6,
+                       latencies.get(Math.min(n - 1, n * 99 / 100)) / 1e6);
+        }
+    }
+
+    /** Make the pending updates of the current group of commands
+     *  durable, then release their output and report their latencies. */
+    private void commitGroup() {
+        if (names.isEmpty()) {
+            return;
+        }
+        Repository.flush();
+        long now = System.nanoTime();
+        out.write(held.toByteArray(), 0, held.size());
+        out.flush();
+        held.reset();
+        for (int i = 0; i < names.size(); i += 1) {
+            long durable = now - starts.get(i);
+            latencies.add(durable);
+            err.printf("# %s: %.3f ms run, %.3f ms to durable%n",
+                       names.get(i), runs.get(i) / 1e6, durable / 1e6);
+        }
+        names.clear();
+        starts.clear();
+        runs.clear();
+    }
+
+    /** Returns the command name and operands in LINE, as described
+     *  above. */
+    static String[] parse(String line) {
+        List<String> words = new ArrayList<>();
+        StringBuilder word = null;
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i += 1) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    quoted = false;
+                } else if (c == '\\' && i + 1 < line.length()
+                           && (line.charAt(i + 1) == '"'
+                               || line.charAt(i + 1) == '\\')) {
+                    i += 1;
+                    word.append(line.charAt(i));
+                } else {
+                    word.append(c);
+                }
+            } else if (Character.isWhitespace(c)) {
+                if (word != null) {
+                    words.add(word.toString());
+                    word = null;
+                }
+            } else {
+                if (word == null) {
+                    word = new StringBuilder();
+                }
+                if (c == '"') {
+                    quoted = true;
+                } else {
+                    word.append(c);
+                }
+            }
+        }
+        if (quoted) {
+            throw Utils.error("Unterminated quotation.");
+        }
+        if (word != null) {
+            words.add(word.toString());
+        }
+        return words.toArray(new String[0]);
+    }
+
+    /** Source of commands. */
+    private final BufferedReader in;
+    /** Destination of command output. */
+    private final PrintStream out;
+    /** Destination of latency reports. */
+    private final PrintStream err;
+    /** Output of the current group of commands, held until the group is
+     *  committed. */
+    private final ByteArrayOutputStream held = new ByteArrayOutputStream();
+    /** Names of the commands of the current group. */
+    private final List<String> names = new ArrayList<>();
+    /** Start times of the commands of the current group, in
+     *  nanoseconds. */
+    private final List<Long> starts = new ArrayList<>();
+    /** Running times of the commands of the current group, in
+     *  nanoseconds. */
+    private final List<Long> runs = new ArrayList<>();
+    /** Times from start to durability of all commands committed so far,
+     *  in nanoseconds. */
+    private final List<Long> latencies = new ArrayList<>();
+}
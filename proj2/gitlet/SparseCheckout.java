@@ -0,0 +1,152 @@
+package gitlet;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static gitlet.Utils.*;
+
+/** The sparse-checkout patterns of a Gitlet repository, which confine
+ *  the working tree to the tracked files they match.  Checkout, reset,
+ *  and merge write only matching files; status, add ., and diff look
+ *  only at matching paths, so that the cost of those commands grows
+ *  with the part of the tree in use rather than with the whole.  Files
+ *  outside the patterns stay tracked, and commits carry them over
+ *  unchanged.
+ *
+ *  A pattern is a path with components separated by '/', in which '*'
+ *  stands for any sequence of characters other than '/'.  It matches
+ *  the files and directories with the same number of components, each
+ *  matching the pattern's, and everything under them: "src" matches
+ *  src/a.txt and src/lib/b.txt, and "*.txt" every top-level file with
+ *  extension .txt.  Having no patterns matches everything.
+ *
+ *  The patterns are kept one per line in a text file, read and written
+ *  through the repository's journal (see Journal); the file is absent
+ *  when there are none.
+ */
+class SparseCheckout {
+
+    /** The patterns stored in FILE, read through JOURNAL. */
+    SparseCheckout(Journal journal, File file) {
+        this(journal.exists(file)
+             ? List.of(journal.readString(file).split("\n"))
+             : Collections.emptyList());
+    }
+
+    /** The patterns PATTERNS, which are normalized to have no leading,
+     *  trailing, or repeated '/'. */
+    SparseCheckout(List<String> patterns) {
+        for (String pattern : patterns) {
+            List<String> parts = new ArrayList<>();
+            for (String part : pattern.split("/")) {
+                if (part.equals(".") || part.equals("..")) {
+                    throw error("Invalid sparse-checkout pattern.");
+                } else if (!part.isEmpty()) {
+                    parts.add(part);
+                }
+            }
+            if (!parts.isEmpty()) {
+                this.patterns.add(parts.toArray(new String[0]));
+            }
+        }
+    }
+
+    /** Returns my patterns, in their normalized form. */
+    List<String> patterns() {
+        List<String> result = new ArrayList<>();
+        for (String[] pattern : patterns) {
+            result.add(String.join("/", pattern));
+        }
+        return result;
+    }
+
+    /** Returns true iff I have no patterns, and so match everything. */
+    boolean isEmpty() {
+        return patterns.isEmpty();
+    }
+
+    /** Returns true iff PATH, a path relative to the working tree with
+     *  components separated by '/', is matched by one of my patterns. */
+    boolean includes(String path) {
+        if (patterns.isEmpty()) {
+            return true;
+        }
+        String[] parts = path.split("/");
+        for (String[] pattern : patterns) {
+            if (pattern.length <= parts.length
+                && matchesPrefix(pattern, parts, pattern.length)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Returns true iff the directory DIR, a path relative to the working
+     *  tree with components separated by '/', may contain a path I
+     *  include, so that it must be searched. */
+    boolean mayInclude(String dir) {
+        if (patterns.isEmpty()) {
+            return true;
+        }
+        String[] parts = dir.split("/");
+        for (String[] pattern : patterns) {
+            if (matchesPrefix(pattern, parts,
+                              Math.min(pattern.length, parts.length))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Save me in FILE through JOURNAL, deleting FILE if I have no
+     *  patterns. */
+    void save(Journal journal, File file) {
+        if (patterns.isEmpty()) {
+            if (journal.exists(file)) {
+                journal.delete(file);
+            }
+            return;
+        }
+        StringBuilder contents = new StringBuilder();
+        for (String pattern : patterns()) {
+            contents.append(pattern).append('\n');
+        }
+        journal.write(file, contents.toString());
+    }
+
+    /** Returns true iff the first N components of PATTERN and PARTS
+     *  match. */
+    private static boolean matchesPrefix(String[] pattern, String[] parts,
+                                         int n) {
+        for (int i = 0; i < n; i += 1) {
+            if (!matches(pattern[i], 0, parts[i], 0)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Returns true iff the component NAME from position J matches the
+     *  pattern component GLOB from position I. */
+    private static boolean matches(String glob, int i, String name, int j) {
+        for (; i < glob.length(); i += 1, j += 1) {
+            char c = glob.charAt(i);
+            if (c == '*') {
+                for (int k = name.length(); k >= j; k -= 1) {
+                    if (matches(glob, i + 1, name, k)) {
+                        return true;
+                    }
+                }
+                return false;
+            } else if (j == name.length() || name.charAt(j) != c) {
+                return false;
+            }
+        }
+        return j == name.length();
+    }
+
+    /** My patterns, each as its components. */
+    private final List<String[]> patterns = new ArrayList<>();
+}
@@ -0,0 +1,313 @@
+package gitlet;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import static gitlet.Utils.*;
+
+/** The index of a Gitlet repository.  It holds the staging area (the
+ *  files staged for addition, with the UIDs of their staged blobs, and
+ *  those staged for removal) and a cache of the stat data (size,
+ *  modification time, and inode number) of working files whose contents
+ *  have been hashed, so that unchanged files need not be hashed again.
+ *
+ *  A cached entry is trusted only if the file's stat data still match and
+ *  the file was last modified strictly before the index itself was last
+ *  saved; a file modified within the same clock tick as the save is
+ *  "racy" and is always rehashed.
+ *
+ *  The index is saved in the binary form
+ *      MAGIC VERSION COUNT ENTRY...
+ *  where each ENTRY, in order of file name, is
+ *      FLAGS:1 NAME:UTF [STAGED:20] [SIZE:8 MTIME:8 INODE:8 BLOB:20]
+ *  with STAGED present iff FLAGS includes ADDED, and the stat data iff
+ *  FLAGS includes STAT.
+ */
+class StagingArea {
+
+    /** Magic number at the start of an index file ("GLIN"). */
+    static final int MAGIC = 0x474c494e;
+    /** Current version of the index format. */
+    static final int VERSION = 1;
+    /** Entry flag: the file is staged for addition. */
+    private static final int ADDED = 1;
+    /** Entry flag: the file is staged for removal. */
+    private static final int REMOVED = 2;
+    /** Entry flag: stat data for the working file are cached. */
+    private static final int STAT = 4;
+    /** Milliseconds by which the modification times the file system
+     *  gives files, taken from a coarser clock, may lag the system
+     *  clock. */
+    private static final long CLOCK_SLACK = 1000;
+
+    /** Returns the index saved in FILE, as seen through JOURNAL, or an
+     *  empty one if FILE does not exist.  An index not yet written out by
+     *  JOURNAL is taken to have been saved CLOCK_SLACK before it was
+     *  scheduled to be. */
+    static StagingArea load(Journal journal, File file) {
+        StagingArea result = new StagingArea();
+        if (!journal.exists(file)) {
+            return result;
+        }
+        try {
+            if (journal.isPending(file)) {
+                result.savedAt = FileTime.fromMillis(journal.scheduledAt(file)
+                                                     - CLOCK_SLACK);
+            } else {
+                result.savedAt = Files.getLastModifiedTime(file.toPath());
+            }
+            DataInputStream in = new DataInputStream(
+                new ByteArrayInputStream(journal.read(file)));
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw error("Corrupt index.");
+            }
+            for (int n = in.readInt(); n > 0; n -= 1) {
+                int flags = in.readByte();
+                String name = in.readUTF();
+                if ((flags & ADDED) != 0) {
+                    result.added.put(name, readUid(in));
+                }
+                if ((flags & REMOVED) != 0) {
+                    result.removed.add(name);
+                }
+                if ((flags & STAT) != 0) {
+                    long size = in.readLong();
+                    long mtime = in.readLong();
+                    long inode = in.readLong();
+                    result.stats.put(name,
+                                     new Stat(size, mtime, inode,
+                                              readUid(in)));
+                }
+            }
+            return result;
+        } catch (IOException excp) {
+            throw error("Corrupt index.");
+        }
+    }
+
+    /** Save me in FILE through JOURNAL. */
+    void save(Journal journal, File file) {
+        TreeSet<String> names = new TreeSet<>(added.keySet());
+        names.addAll(removed);
+        names.addAll(stats.keySet());
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(names.size());
+            for (String name : names) {
+                Stat stat = stats.get(name);
+                out.writeByte((added.containsKey(name) ? ADDED : 0)
+                              | (removed.contains(name) ? REMOVED : 0)
+                              | (stat != null ? STAT : 0));
+                out.writeUTF(name);
+                if (added.containsKey(name)) {
+                    out.write(uidToBytes(added.get(name)));
+                }
+                if (stat != null) {
+                    out.writeLong(stat.size);
+                    out.writeLong(stat.mtime);
+                    out.writeLong(stat.inode);
+                    out.write(uidToBytes(stat.blob));
+                }
+            }
+            out.close();
+            journal.write(file, bytes.toByteArray());
+            statsChanged = false;
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Stage file NAME, whose contents have UID BLOB, for addition. */
+    void add(String name, String blob) {
+        added.put(name, blob);
+        removed.remove(name);
+    }
+
+    /** Stage file NAME for removal. */
+    void remove(String name) {
+        added.remove(name);
+        removed.add(name);
+    }
+
+    /** Remove any staged addition or removal of file NAME. */
+    void unstage(String name) {
+        added.remove(name);
+        removed.remove(name);
+    }
+
+    /** Returns the files staged for addition, mapped to their blob
+     *  UIDs. */
+    Map<String, String> getAdded() {
+        return Collections.unmodifiableMap(added);
+    }
+
+    /** Returns the files staged for removal. */
+    Set<String> getRemoved() {
+        return Collections.unmodifiableSet(removed);
+    }
+
+    /** Returns true iff nothing is staged. */
+    boolean isEmpty() {
+        return added.isEmpty() && removed.isEmpty();
+    }
+
+    /** Unstage everything. */
+    void clear() {
+        added.clear();
+        removed.clear();
+    }
+
+    /** Returns the UID of the contents of FILE, the working file NAME.
+     *  Uses the cached UID if FILE's stat data are unchanged and it is not
+     *  racy; otherwise hashes FILE and caches the result. */
+    String workingBlob(String name, File file) {
+        Stat now = Stat.of(file, null);
+        String cached = cachedBlob(name, now);
+        if (cached != null) {
+            return cached;
+        }
+        String blob = ObjectStore.uid(file);
+        recordStat(name, now.withBlob(blob));
+        return blob;
+    }
+
+    /** Returns the cached UID of the contents of working file NAME, whose
+     *  current stat data are NOW, or null if the cache cannot vouch for
+     *  it.  Safe to call from several threads while none modifies the
+     *  cache. */
+    String cachedBlob(String name, Stat now) {
+        Stat cached = stats.get(name);
+        if (cached != null && cached.sameFileAs(now) && !isRacy(cached)) {
+            return cached.blob;
+        }
+        return null;
+    }
+
+    /** Returns the cached UID of the contents of working file NAME,
+     *  known by other means not to have changed since its stat data were
+     *  cached, or null if there are none or they are racy. */
+    String unchangedBlob(String name) {
+        Stat cached = stats.get(name);
+        return cached == null || isRacy(cached) ? null : cached.blob;
+    }
+
+    /** Cache STAT as the stat data of working file NAME. */
+    void recordStat(String name, Stat stat) {
+        stats.put(name, stat);
+        statsChanged = true;
+    }
+
+    /** Discard any cached stat data for working file NAME. */
+    void forgetStat(String name) {
+        if (stats.remove(name) != null) {
+            statsChanged = true;
+        }
+    }
+
+    /** Returns true iff the stat cache has changed since I was loaded or
+     *  last saved. */
+    boolean statsChanged() {
+        return statsChanged;
+    }
+
+    /** Returns true iff the file described by STAT was modified no
+     *  earlier than my last save, so that a later change within the same
+     *  clock tick might not show in its modification time. */
+    private boolean isRacy(Stat stat) {
+        return savedAt == null || stat.mtime >= toNanos(savedAt);
+    }
+
+    /** Returns TIME in nanoseconds since the epoch. */
+    private static long toNanos(FileTime time) {
+        return time.to(TimeUnit.NANOSECONDS);
+    }
+
+    /** Returns the UID read as UID_BYTES raw bytes from IN. */
+    private static String readUid(DataInputStream in) throws IOException {
+        byte[] id = new byte[UID_BYTES];
+        in.readFully(id);
+        return bytesToUid(id, 0, UID_BYTES);
+    }
+
+    /** Cached stat data and contents UID of a working file. */
+    static class Stat {
+        /** Attributes read on systems with Unix file attributes. */
+        private static final String UNIX_ATTRS =
+            "unix:size,lastModifiedTime,ino";
+        /** Attributes read elsewhere. */
+        private static final String BASIC_ATTRS = "size,lastModifiedTime";
+
+        /** Stat data SIZE, MTIME (nanoseconds), and INODE of a file with
+         *  contents BLOB. */
+        Stat(long size, long mtime, long inode, String blob) {
+            this.size = size;
+            this.mtime = mtime;
+            this.inode = inode;
+            this.blob = blob;
+        }
+
+        /** Returns the current stat data of FILE, with contents BLOB. */
+        static Stat of(File file, String blob) {
+            try {
+                Map<String, Object> attrs;
+                try {
+                    attrs = Files.readAttributes(file.toPath(), UNIX_ATTRS);
+                } catch (UnsupportedOperationException excp) {
+                    attrs = Files.readAttributes(file.toPath(), BASIC_ATTRS);
+                }
+                Object inode = attrs.get("ino");
+                FileTime mtime = (FileTime) attrs.get("lastModifiedTime");
+                return new Stat((Long) attrs.get("size"), toNanos(mtime),
+                                inode == null ? 0 : (Long) inode, blob);
+            } catch (IOException excp) {
+                throw new IllegalArgumentException(excp.getMessage());
+            }
+        }
+
+        /** Returns these stat data with contents BLOB. */
+        Stat withBlob(String newBlob) {
+            return new Stat(size, mtime, inode, newBlob);
+        }
+
+        /** Returns true iff my stat data equal those of OTHER. */
+        boolean sameFileAs(Stat other) {
+            return size == other.size && mtime == other.mtime
+                && inode == other.inode;
+        }
+
+        /** File size in bytes. */
+        final long size;
+        /** Modification time in nanoseconds since the epoch. */
+        final long mtime;
+        /** Inode number, or 0 where unavailable. */
+        final long inode;
+        /** UID of the file's contents. */
+        final String blob;
+    }
+
+    /** Files staged for addition, mapped to their blob UIDs. */
+    private final TreeMap<String, String> added = new TreeMap<>();
+    /** Files staged for removal. */
+    private final TreeSet<String> removed = new TreeSet<>();
+    /** Cached stat data of working files. */
+    private final TreeMap<String, Stat> stats = new TreeMap<>();
+    /** Time at which the index was last saved, or null if never. */
+    private FileTime savedAt;
+    /** True iff STATS has changed since loading or saving. */
+    private boolean statsChanged;
+}
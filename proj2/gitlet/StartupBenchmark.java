@@ -0,0 +1,117 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/** A benchmark of the wall-clock time of short Gitlet commands, each run
+ *  as its own JVM, as Gitlet normally is.  Its main program may be
+ *  invoked as
+ *      java gitlet.StartupBenchmark [ROUNDS [ARCHIVE]]
+ *  and builds a small repository in a temporary directory, then runs
+ *  each of COMMANDS ROUNDS (default 20) times with the class path of the
+ *  benchmark itself, reporting the median time per command.  If ARCHIVE
+ *  names a class-data-sharing archive (see the Makefile), each command
+ *  is also run with that archive, alternating with the runs without it,
+ *  and both medians are reported.
+ */
+public class StartupBenchmark {
+
+    /** The commands timed, each as its name followed by its operands. */
+    static final String[][] COMMANDS = {
+        { "status" },
+        { "log" },
+        { "branch", "other" },
+        { "rm-branch", "other" },
+        { "add", "f1.txt" },
+        { "checkout", "--", "f2.txt" },
+        { "find", "second" },
+    };
+
+    /** Run the benchmark as described above, with ARGS giving ROUNDS and
+     *  ARCHIVE. */
+    public static void main(String... args) throws IOException {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        String archive = args.length > 1 ? args[1] : null;
+        File dir = Files.createTempDirectory("gitlet-startup").toFile();
+        try {
+            Utils.writeContents(new File(dir, "f1.txt"), "one\n");
+            Utils.writeContents(new File(dir, "f2.txt"), "two\n");
+            run(dir, null, "init");
+            run(dir, null, "add", "f1.txt", "f2.txt");
+            run(dir, null, "commit", "first");
+            Utils.writeContents(new File(dir, "f2.txt"), "three\n");
+            run(dir, null, "add", "f2.txt");
+            run(dir, null, "commit", "second");
+
+            System.out.printf("%-24s %10s%s%n", "command", "plain",
+                              archive == null ? "" : "    archive");
+            for (String[] command : COMMANDS) {
+                long[] plain = new long[rounds];
+                long[] shared = new long[rounds];
+                for (int i = 0; i < rounds; i += 1) {
+                    plain[i] = run(dir, null, command);
+                    if (archive != null) {
+                        shared[i] = run(dir, archive, command);
+                    }
+                }
+                System.out.printf("%-24s %7.1f ms", String.join(" ", command),
+                                  median(plain) / 1e6);
+                if (archive != null) {
+                    System.out.printf(" %7.1f ms", median(shared) / 1e6);
+                }
+                System.out.println();
+            }
+        } finally {
+            delete(dir);
+        }
+    }
+
+    /** Runs Gitlet with arguments ARGS in directory DIR, using the
+     *  class-data-sharing archive ARCHIVE if it is non-null, and returns
+     *  its wall-clock time in nanoseconds. */
+    private static long run(File dir, String archive, String... args)
+        throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(new File(System.getProperty("java.home"), "bin/java")
+                    .getPath());
+        if (archive != null) {
+            command.add("-XX:SharedArchiveFile=" + archive);
+        }
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add("gitlet.Main");
+        command.addAll(Arrays.asList(args));
+        ProcessBuilder builder = new ProcessBuilder(command)
+            .directory(dir).redirectErrorStream(true)
+            .redirectOutput(ProcessBuilder.Redirect.DISCARD);
+        long start = System.nanoTime();
+        Process process = builder.start();
+        try {
+            process.waitFor();
+        } catch (InterruptedException excp) {
+            throw new IllegalStateException(excp);
+        }
+        return System.nanoTime() - start;
+    }
+
+    /** Returns the median of TIMES, which it sorts. */
+    private static long median(long[] times) {
+        Arrays.sort(times);
+        return times[times.length / 2];
+    }
+
+    /** Deletes FILE and, if it is a directory, everything under it. */
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
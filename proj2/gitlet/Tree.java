@@ -0,0 +1,237 @@
+package gitlet;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/** A directory snapshot: a mapping of the names of the files and
+ *  subdirectories of one directory to the UIDs of their blobs and trees.
+ *  Trees are immutable once stored, so two commits whose directories have
+ *  the same contents share one tree object, and operations comparing
+ *  snapshots can skip any subtree whose UID is unchanged.
+ *
+ *  File paths handed to and returned by the static methods here are
+ *  relative to the root tree, with components separated by '/'.
+ */
+class Tree {
+
+    /** An empty tree. */
+    Tree() {
+        entries = new TreeMap<>();
+    }
+
+    /** A tree with ENTRIES, a mapping of names to entries. */
+    Tree(TreeMap<String, Entry> entries) {
+        this.entries = entries;
+    }
+
+    /** Returns my entries, in order of name. */
+    Map<String, Entry> entries() {
+        return Collections.unmodifiableMap(entries);
+    }
+
+    /** Returns true iff I have no entries. */
+    boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    /** Stores me in STORE, returning my UID. */
+    String write(ObjectStore store) {
+        return store.put(ObjectStore.TREE, ObjectCodec.encodeTree(this));
+    }
+
+    /** Returns the tree whose UID is ID in STORE. */
+    static Tree read(ObjectStore store, String id) {
+        return store.decode(id, ObjectCodec::decodeTree);
+    }
+
+    /** Returns the UID of the tree formed by applying CHANGES to the tree
+     *  with UID ROOT (an empty tree if null), storing any new trees in
+     *  STORE.  CHANGES maps paths to their new blob UIDs, or to null for
+     *  paths to be removed.  Only the trees on the paths to changed files
+     *  are rewritten; directories left empty are dropped. */
+    static String update(ObjectStore store, String root,
+                         SortedMap<String, String> changes) {
+        return apply(store, root, changes).write(store);
+    }
+
+    /** Returns the mapping of every file path under the tree with UID ROOT
+     *  in STORE to its blob UID. */
+    static TreeMap<String, String> flatten(ObjectStore store, String root) {
+        return flatten(store, root, null);
+    }
+
+    /** Returns the mapping of every file path under the tree with UID ROOT
+     *  in STORE that SPARSE includes (every path if SPARSE is null) to its
+     *  blob UID.  Subtrees that SPARSE cannot include are not read. */
+    static TreeMap<String, String> flatten(ObjectStore store, String root,
+                                           SparseCheckout sparse) {
+        TreeMap<String, String> result = new TreeMap<>();
+        flatten(store, root, "", sparse, result);
+        return result;
+    }
+
+    /** Returns the UID of the blob at PATH under the tree with UID ROOT in
+     *  STORE, or null if there is none.  Only the trees along PATH are
+     *  read. */
+    static String lookup(ObjectStore store, String root, String path) {
+        String id = root;
+        int start = 0;
+        while (true) {
+            int slash = path.indexOf('/', start);
+            String name = path.substring(start, slash < 0 ? path.length()
+                                         : slash);
+            Entry entry = read(store, id).entries.get(name);
+            if (entry == null || entry.isTree() != (slash >= 0)) {
+                return null;
+            } else if (slash < 0) {
+                return entry.id;
+            }
+            id = entry.id;
+            start = slash + 1;
+        }
+    }
+
+    /** Returns the differences between the trees with UIDs FROM and TO in
+     *  STORE, as a mapping of each path whose blob differs to its blob UID
+     *  under TO, or to null if TO lacks it.  Subtrees with the same UID
+     *  under both are not examined. */
+    static TreeMap<String, String> diff(ObjectStore store, String from,
+                                        String to) {
+        TreeMap<String, String> result = new TreeMap<>();
+        diff(store, from, to, "", result);
+        return result;
+    }
+
+    /** Returns the tree with UID ROOT (an empty tree if null) in STORE
+     *  with CHANGES (as for update) applied. */
+    private static Tree apply(ObjectStore store, String root,
+                              SortedMap<String, String> changes) {
+        TreeMap<String, Entry> entries =
+            root == null ? new TreeMap<>()
+            : new TreeMap<>(read(store, root).entries);
+        TreeMap<String, TreeMap<String, String>> subdirs = new TreeMap<>();
+        for (Map.Entry<String, String> change : changes.entrySet()) {
+            String path = change.getKey();
+            int slash = path.indexOf('/');
+            if (slash >= 0) {
+                subdirs.computeIfAbsent(path.substring(0, slash),
+                                        k -> new TreeMap<>())
+                    .put(path.substring(slash + 1), change.getValue());
+            } else if (change.getValue() == null) {
+                entries.remove(path);
+            } else {
+                entries.put(path, new Entry(ObjectStore.BLOB,
+                                            change.getValue()));
+            }
+        }
+        for (Map.Entry<String, TreeMap<String, String>> sub
+                 : subdirs.entrySet()) {
+            Entry old = entries.get(sub.getKey());
+            String oldId = old != null && old.isTree() ? old.id : null;
+            Tree subtree = apply(store, oldId, sub.getValue());
+            if (subtree.isEmpty()) {
+                entries.remove(sub.getKey());
+            } else {
+                entries.put(sub.getKey(), new Entry(ObjectStore.TREE,
+                                                    subtree.write(store)));
+            }
+        }
+        return new Tree(entries);
+    }
+
+    /** Add the files under the tree with UID ROOT in STORE that SPARSE
+     *  includes (all if null) to RESULT, with their paths prefixed by
+     *  PREFIX. */
+    private static void flatten(ObjectStore store, String root, String prefix,
+                                SparseCheckout sparse,
+                                Map<String, String> result) {
+        Tree tree = read(store, root);
+        for (Map.Entry<String, Entry> e : tree.entries.entrySet()) {
+            String path = prefix + e.getKey();
+            if (e.getValue().isTree()) {
+                if (sparse == null || sparse.mayInclude(path)) {
+                    flatten(store, e.getValue().id, path + "/", sparse,
+                            result);
+                }
+            } else if (sparse == null || sparse.includes(path)) {
+                result.put(path, e.getValue().id);
+            }
+        }
+    }
+
+    /** Add the differences between the trees with UIDs FROM and TO (either
+     *  of which may be null, denoting an empty tree) in STORE to RESULT,
+     *  with their paths prefixed by PREFIX. */
+    private static void diff(ObjectStore store, String from, String to,
+                             String prefix, Map<String, String> result) {
+        if (from != null && from.equals(to)) {
+            return;
+        }
+        Map<String, Entry> a =
+            from == null ? Collections.emptyMap() : read(store, from).entries;
+        Map<String, Entry> b =
+            to == null ? Collections.emptyMap() : read(store, to).entries;
+        TreeMap<String, Entry> names = new TreeMap<>(a);
+        names.putAll(b);
+        for (String name : names.keySet()) {
+            Entry x = a.get(name);
+            Entry y = b.get(name);
+            if (x != null && x.equals(y)) {
+                continue;
+            }
+            String path = prefix + name;
+            if (x != null && x.isTree()) {
+                diff(store, x.id, y != null && y.isTree() ? y.id : null,
+                     path + "/", result);
+            } else if (x != null && (y == null || y.isTree())) {
+                result.put(path, null);
+            }
+            if (y != null && y.isTree()) {
+                if (x == null || !x.isTree()) {
+                    diff(store, null, y.id, path + "/", result);
+                }
+            } else if (y != null) {
+                result.put(path, y.id);
+            }
+        }
+    }
+
+    /** One entry of a tree: a blob or a subtree. */
+    static class Entry {
+        /** An entry of type TYPE (ObjectStore.BLOB or ObjectStore.TREE)
+         *  whose object has UID ID. */
+        Entry(int type, String id) {
+            this.type = type;
+            this.id = id;
+        }
+
+        /** Returns true iff this entry denotes a subtree. */
+        boolean isTree() {
+            return type == ObjectStore.TREE;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Entry)) {
+                return false;
+            }
+            Entry other = (Entry) obj;
+            return type == other.type && id.equals(other.id);
+        }
+
+        @Override
+        public int hashCode() {
+            return id.hashCode();
+        }
+
+        /** The type of the object. */
+        final int type;
+        /** The UID of the object. */
+        final String id;
+    }
+
+    /** My entries, by name. */
+    private final TreeMap<String, Entry> entries;
+}
@@ -1,6 +1,7 @@
 package gitlet;
 
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
@@ -9,8 +10,12 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
@@ -63,6 +68,41 @@ class Utils {
         return sha1(vals.toArray(new Object[vals.size()]));
     }
 
+    /** Size of the chunks in which file contents are streamed. */
+    static final int CHUNK_SIZE = 1 << 16;
+
+    /** The length of a complete SHA-1 UID in bytes. */
+    static final int UID_BYTES = UID_LENGTH / 2;
+
+    /** Returns the raw UID_BYTES-byte form of the hexadecimal UID ID. */
+    static byte[] uidToBytes(String id) {
+        if (id.length() != UID_LENGTH) {
+            throw new IllegalArgumentException("malformed UID: " + id);
+        }
+        byte[] result = new byte[UID_BYTES];
+        for (int i = 0; i < UID_BYTES; i += 1) {
+            int hi = Character.digit(id.charAt(2 * i), 16);
+            int lo = Character.digit(id.charAt(2 * i + 1), 16);
+            if (hi < 0 || lo < 0) {
+                throw new IllegalArgumentException("malformed UID: " + id);
+            }
+            result[i] = (byte) (hi << 4 | lo);
+        }
+        return result;
+    }
+
+    /** Returns the hexadecimal UID of the LEN bytes of BYTES starting at
+     *  OFFSET. */
+    static String bytesToUid(byte[] bytes, int offset, int len) {
+        char[] result = new char[2 * len];
+        for (int i = 0; i < len; i += 1) {
+            int b = bytes[offset + i] & 0xff;
+            result[2 * i] = Character.forDigit(b >>> 4, 16);
+            result[2 * i + 1] = Character.forDigit(b & 0xf, 16);
+        }
+        return new String(result);
+    }
+
     /* FILE DELETION */
 
     /** Deletes FILE if it exists and is not a directory.  Returns true
@@ -157,6 +197,50 @@ class Utils {
         writeContents(file, serialize(obj));
     }
 
+    /** Return the entire contents of FILE mapped read-only into memory.
+     *  FILE must be a normal file of at most Integer.MAX_VALUE bytes.
+     *  Throws IllegalArgumentException in case of problems. */
+    static MappedByteBuffer mapContents(File file) {
+        try (FileChannel channel =
+                 FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("file too large to map");
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                               channel.size());
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Return the SIZE bytes of FILE starting at POSITION mapped
+     *  read-only into memory.  SIZE must be at most Integer.MAX_VALUE.
+     *  Throws IllegalArgumentException in case of problems. */
+    static MappedByteBuffer mapContents(File file, long position,
+                                        long size) {
+        try (FileChannel channel =
+                 FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Force the contents of FILE, or if FILE is a directory the names
+     *  of its entries, to disk.  Directories that cannot be opened, as
+     *  on some platforms that need no such step, are skipped.  Throws
+     *  IllegalArgumentException in case of other problems. */
+    static void force(File file) {
+        try (FileChannel channel =
+                 FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException excp) {
+            if (!file.isDirectory()) {
+                throw new IllegalArgumentException(excp.getMessage());
+            }
+        }
+    }
+
     /* DIRECTORIES */
 
     /** Filter out all but plain files. */
@@ -205,8 +289,40 @@ class Utils {
     }
 
 
+    /** Creates and returns a new, empty file in directory DIR whose name
+     *  starts with "tmp-" and ends with SUFFIX.  Unlike
+     *  File.createTempFile, this does not seed a SecureRandom, which
+     *  would take a noticeable part of a short command's running time. */
+    static File createTempFile(File dir, String suffix) throws IOException {
+        while (true) {
+            File file = new File(dir, "tmp-"
+                                 + Long.toHexString(System.nanoTime())
+                                 + suffix);
+            if (file.createNewFile()) {
+                return file;
+            }
+        }
+    }
+
     /* SERIALIZATION UTILITIES */
 
+    /** Return an object of type T deserialized from BYTES, casting it to
+     *  EXPECTEDCLASS.  Throws IllegalArgumentException in case of
+     *  problems. */
+    static <T extends Serializable> T deserialize(byte[] bytes,
+                                                  Class<T> expectedClass) {
+        try {
+            ObjectInputStream in =
+                new ObjectInputStream(new ByteArrayInputStream(bytes));
+            T result = expectedClass.cast(in.readObject());
+            in.close();
+            return result;
+        } catch (IOException | ClassCastException
+                 | ClassNotFoundException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
     /** Returns a byte array containing the serialized contents of OBJ. */
     static byte[] serialize(Serializable obj) {
         try {
@@ -222,6 +338,38 @@ class Utils {
 
 
 
+    /* VARIABLE-LENGTH INTEGERS */
+
+    /** Write the non-negative value N to OUT as a varint: seven bits per
+     *  byte, least significant first, with the high bit set on all but
+     *  the last byte. */
+    static void writeVarint(ByteArrayOutputStream out, long n) {
+        while ((n & ~0x7fL) != 0) {
+            out.write((int) (n & 0x7f) | 0x80);
+            n >>>= 7;
+        }
+        out.write((int) n);
+    }
+
+    /** Returns the varint at the current position of IN, advancing past
+     *  it. */
+    static long readVarlong(ByteBuffer in) {
+        long result = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = in.get();
+            result |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+    }
+
+    /** Returns the varint at the current position of IN, which must fit
+     *  in an int, advancing past it. */
+    static int readVarint(ByteBuffer in) {
+        return (int) readVarlong(in);
+    }
+
     /* MESSAGES AND ERROR REPORTING */
 
     /** Return a GitletException whose message is composed from MSG and ARGS as
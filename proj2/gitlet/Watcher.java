@@ -0,0 +1,390 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.UUID;
+
+import static gitlet.Utils.*;
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/** A daemon that watches the working tree for changes, so that status
+ *  need examine only the paths changed since it last ran instead of
+ *  listing and statting every working file.
+ *
+ *  While it runs, the watcher holds a lock on the file lock in its
+ *  directory, and appends to the file log there lines of the form
+ *      P PATH  -- the file or directory PATH may have changed
+ *      C NAME  -- the cookie NAME (see below) was created
+ *      *       -- changes were lost; any path may have changed
+ *  following a first line naming the watcher's session.  PATH is
+ *  relative to the working tree and separated by '/'.  A directory
+ *  created or moved into the tree is logged along with every file under
+ *  it.  Once the log grows past LOG_LIMIT bytes, the watcher starts a new
+ *  session with an empty log.
+ *
+ *  Status first syncs with the watcher by creating a cookie file in the
+ *  cookies subdirectory and waiting, for up to COOKIE_TIMEOUT_MILLIS, for
+ *  the watcher to log it; every change made before the cookie is then
+ *  logged before it.  It then takes the list of working files it saved
+ *  in the file state at the end of the log it last read, and corrects it
+ *  for the paths logged since.  With no watcher running, no cookie
+ *  logged in time, a new session, or lost changes, status falls back on
+ *  listing the whole tree and hashing any file whose cached stat data do
+ *  not match.
+ *
+ *  The state file has the form
+ *      SESSION OFFSET NAME...
+ *  one per line, where OFFSET is the position in the log just past the
+ *  last line read, and NAME are the working files as of then.  Since
+ *  only the files within the sparse checkout (see SparseCheckout) are
+ *  listed, the state is discarded whenever its patterns change.
+ */
+class Watcher {
+
+    /** Size in bytes past which the watcher starts a new log. */
+    static final long LOG_LIMIT = 4 << 20;
+    /** Longest time status waits for the watcher to log its cookie. */
+    static final long COOKIE_TIMEOUT_MILLIS = 1000;
+
+    /** A watcher of the working tree ROOT, keeping its files in DIR
+     *  and ignoring the repository directory GITLETDIR. */
+    Watcher(File root, File dir, File gitletDir) {
+        this.root = root.toPath();
+        this.dir = dir;
+        this.gitletDir = gitletDir.toPath();
+        this.cookies = join(dir, "cookies").toPath();
+    }
+
+    /** Watch the working tree until killed.  Throws a GitletException if
+     *  another watcher is already running. */
+    void watch() {
+        cookies.toFile().mkdirs();
+        try (FileChannel lockFile =
+                 FileChannel.open(join(dir, "lock").toPath(),
+                                  StandardOpenOption.CREATE,
+                                  StandardOpenOption.WRITE);
+             WatchService service =
+                 FileSystems.getDefault().newWatchService()) {
+            FileLock lock = lockFile.tryLock();
+            if (lock == null) {
+                throw error("A watcher is already running.");
+            }
+            startSession();
+            cookies.register(service, ENTRY_CREATE);
+            register(root, service, null);
+            while (true) {
+                WatchKey key = service.take();
+                List<String> lines = new ArrayList<>();
+                do {
+                    handle(key, service, lines);
+                    key.reset();
+                    key = service.poll();
+                } while (key != null);
+                append(lines);
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        } catch (InterruptedException excp) {
+            return;
+        }
+    }
+
+    /** Add to LINES the log lines for the events pending on KEY,
+     *  registering any new directories with SERVICE. */
+    private void handle(WatchKey key, WatchService service,
+                        List<String> lines) throws IOException {
+        Path watched = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                lines.add("*");
+                continue;
+            }
+            Path path = watched.resolve((Path) event.context());
+            if (watched.equals(cookies)) {
+                lines.add("C " + path.getFileName());
+                Files.deleteIfExists(path);
+            } else if (path.equals(gitletDir)) {
+                continue;
+            } else if (!Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                lines.add("P " + relative(path));
+            } else if (event.kind() == ENTRY_CREATE) {
+                lines.add("P " + relative(path));
+                register(path, service, lines);
+            }
+        }
+    }
+
+    /** Register START and the directories under it, other than the
+     *  repository directory, with SERVICE.  Unless LINES is null, add to
+     *  it a log line for each file found. */
+    private void register(Path start, WatchService service,
+                          List<String> lines) throws IOException {
+        Files.walkFileTree(start, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(
+                Path path, BasicFileAttributes attrs) throws IOException {
+                if (path.equals(gitletDir)) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                path.register(service, ENTRY_CREATE, ENTRY_DELETE,
+                              ENTRY_MODIFY);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path path,
+                                             BasicFileAttributes attrs) {
+                if (lines != null) {
+                    lines.add("P " + relative(path));
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path path,
+                                                   IOException excp) {
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /** Returns PATH relative to the working tree, separated by '/'. */
+    private String relative(Path path) {
+        return root.relativize(path).toString()
+            .replace(File.separatorChar, '/');
+    }
+
+    /** Start a new session with an empty log. */
+    private void startSession() {
+        String session = UUID.randomUUID().toString() + "\n";
+        writeContents(join(dir, "log"), session);
+        logSize = session.length();
+    }
+
+    /** Append LINES to the log, first starting a new session if the log
+     *  has grown too large. */
+    private void append(List<String> lines) throws IOException {
+        if (lines.isEmpty()) {
+            return;
+        }
+        StringBuilder text = new StringBuilder();
+        for (String line : lines) {
+            text.append(line).append('\n');
+        }
+        byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+        if (logSize + bytes.length > LOG_LIMIT) {
+            startSession();
+        }
+        try (OutputStream out =
+                 Files.newOutputStream(join(dir, "log").toPath(),
+                                       StandardOpenOption.APPEND)) {
+            out.write(bytes);
+        }
+        logSize += bytes.length;
+    }
+
+    /** Returns true iff a watcher keeping its files in DIR is running. */
+    static boolean isRunning(File dir) {
+        File lockFile = join(dir, "lock");
+        if (!lockFile.isFile()) {
+            return false;
+        }
+        try (FileChannel channel =
+                 FileChannel.open(lockFile.toPath(),
+                                  StandardOpenOption.WRITE)) {
+            FileLock lock = channel.tryLock();
+            if (lock == null) {
+                return true;
+            }
+            lock.release();
+            return false;
+        } catch (IOException excp) {
+            return false;
+        }
+    }
+
+    /** Returns the working files of the tree ROOT as of now, found with
+     *  the help of the watcher keeping its files in DIR, or null if
+     *  there is no watcher running or it cannot be synced with.  The
+     *  last state saved is read through JOURNAL. */
+    static Snapshot snapshot(File root, File dir, Journal journal) {
+        if (!isRunning(dir)) {
+            return null;
+        }
+        File stateFile = join(dir, "state");
+        String[] state = journal.exists(stateFile)
+            ? journal.readString(stateFile).split("\n") : null;
+        String cookie = UUID.randomUUID().toString();
+        File cookieFile = join(dir, "cookies", cookie);
+        byte[] marker = ("C " + cookie + "\n")
+            .getBytes(StandardCharsets.UTF_8);
+        long deadline = System.currentTimeMillis() + COOKIE_TIMEOUT_MILLIS;
+        try (RandomAccessFile log = new RandomAccessFile(join(dir, "log"),
+                                                         "r")) {
+            writeContents(cookieFile, "");
+            while (true) {
+                log.seek(0);
+                String session = log.readLine();
+                long start = log.getFilePointer();
+                boolean sameSession = state != null && state.length >= 2
+                    && state[0].equals(session)
+                    && Long.parseLong(state[1]) >= start
+                    && Long.parseLong(state[1]) <= log.length();
+                if (sameSession) {
+                    start = Long.parseLong(state[1]);
+                }
+                byte[] tail = new byte[(int) (log.length() - start)];
+                log.seek(start);
+                log.readFully(tail);
+                int end = indexOf(tail, marker);
+                if (end >= 0) {
+                    String lines = new String(tail, 0, end,
+                                              StandardCharsets.UTF_8);
+                    return new Snapshot(root, stateFile, session,
+                                        start + end + marker.length,
+                                        sameSession ? state : null, lines);
+                }
+                if (System.currentTimeMillis() > deadline) {
+                    cookieFile.delete();
+                    return null;
+                }
+                Thread.sleep(1);
+            }
+        } catch (IOException | NumberFormatException excp) {
+            cookieFile.delete();
+            return null;
+        } catch (InterruptedException excp) {
+            cookieFile.delete();
+            return null;
+        }
+    }
+
+    /** Returns the position of the first occurrence of PATTERN in DATA,
+     *  or -1 if there is none. */
+    private static int indexOf(byte[] data, byte[] pattern) {
+        for (int i = 0; i + pattern.length <= data.length; i += 1) {
+            if (Arrays.equals(data, i, i + pattern.length,
+                              pattern, 0, pattern.length)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /** Discard the state saved in DIR, through JOURNAL, so that the next
+     *  status lists the whole working tree. */
+    static void discardState(File dir, Journal journal) {
+        File stateFile = join(dir, "state");
+        if (journal.exists(stateFile)) {
+            journal.delete(stateFile);
+        }
+    }
+
+    /** The working files as found with the help of a watcher, and the
+     *  paths that may have changed since the last snapshot. */
+    static class Snapshot {
+
+        /** The snapshot of working tree ROOT, to be saved in STATEFILE,
+         *  that ends at position OFFSET of session SESSION of the log.
+         *  STATE is the lines of the state last saved in this session, or
+         *  null if there is none, and LINES the lines logged since. */
+        Snapshot(File root, File stateFile, String session, long offset,
+                 String[] state, String lines) {
+            this.stateFile = stateFile;
+            this.session = session;
+            this.offset = offset;
+            if (state == null || lines.startsWith("*")
+                || lines.contains("\n*\n")) {
+                files = Repository.workingFiles();
+                dirty = null;
+                return;
+            }
+            files = new TreeSet<>(Arrays.asList(state).subList(2,
+                                                               state.length));
+            dirty = new HashSet<>();
+            for (String line : lines.split("\n")) {
+                if (line.startsWith("P ")) {
+                    dirty.add(line.substring(2));
+                }
+            }
+            for (String path : dirty) {
+                files.remove(path);
+                files.subSet(path + "/", path + "0").clear();
+            }
+            for (String path : dirty) {
+                if (join(root, path).isFile()) {
+                    files.add(path);
+                }
+            }
+        }
+
+        /** Returns the paths of the working files, relative to the
+         *  working tree and separated by '/'. */
+        TreeSet<String> files() {
+            return files;
+        }
+
+        /** Returns true iff the working file NAME may have changed since
+         *  the last snapshot. */
+        boolean mayHaveChanged(String name) {
+            return dirty == null || dirty.contains(name);
+        }
+
+        /** Save me through JOURNAL as the state from which the next
+         *  snapshot starts, unless nothing has changed. */
+        void save(Journal journal) {
+            if (dirty != null && dirty.isEmpty()) {
+                return;
+            }
+            StringBuilder state = new StringBuilder();
+            state.append(session).append('\n').append(offset).append('\n');
+            for (String name : files) {
+                state.append(name).append('\n');
+            }
+            journal.write(stateFile, state.toString());
+        }
+
+        /** The file holding the saved state. */
+        private final File stateFile;
+        /** The session of the log. */
+        private final String session;
+        /** The position in the log just past the last line read. */
+        private final long offset;
+        /** The working files. */
+        private final TreeSet<String> files;
+        /** The paths that may have changed, or null if any may have. */
+        private final HashSet<String> dirty;
+    }
+
+    /** The working tree. */
+    private final Path root;
+    /** The directory holding my lock, log, and cookies. */
+    private final File dir;
+    /** The repository directory. */
+    private final Path gitletDir;
+    /** The directory in which cookies are created. */
+    private final Path cookies;
+    /** Size of the log in bytes. */
+    private long logSize;
+}
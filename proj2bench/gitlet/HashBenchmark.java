@@ -0,0 +1,66 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Benchmarks of Utils.sha1 on contents of SIZE bytes, held in memory and
+ *  in a file. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class HashBenchmark {
+
+    /** Size of the hashed contents in bytes. */
+    @Param({ "64", "4096", "1048576" })
+    int size;
+
+    /** Generate the contents and write them to a file. */
+    @Setup
+    public void setup() throws IOException {
+        contents = new byte[size];
+        new Random(SyntheticRepository.SEED).nextBytes(contents);
+        file = File.createTempFile("gitlet-bench", ".bin");
+        Utils.writeContents(file, contents);
+    }
+
+    /** Delete the file. */
+    @TearDown
+    public void tearDown() {
+        file.delete();
+    }
+
+    /** Returns the UID of contents in memory. */
+    @Benchmark
+    public String sha1Bytes() {
+        return Utils.sha1(contents);
+    }
+
+    /** Returns the UID of the contents of a file. */
+    @Benchmark
+    public String sha1File() {
+        return Utils.sha1(file);
+    }
+
+    /** The hashed contents. */
+    private byte[] contents;
+    /** A file holding CONTENTS. */
+    private File file;
+}
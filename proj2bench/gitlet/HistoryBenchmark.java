@@ -0,0 +1,76 @@
+package gitlet;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Benchmarks of the commands whose cost grows with the length of the
+ *  history, in a repository whose branches master and side each add
+ *  COMMITS commits to a common base commit, each changing one file. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class HistoryBenchmark {
+
+    /** Number of commits on each branch since the base commit. */
+    @Param({ "100", "1000", "10000" })
+    int commits;
+
+    /** Build the repository. */
+    @Setup(Level.Trial)
+    public void setup() {
+        repo = new SyntheticRepository();
+        repo.commitFiles(2, "base");
+        repo.run("branch", "side");
+        for (int i = 0; i < commits; i += 1) {
+            repo.change(0, "master " + i);
+        }
+        master = Repository.headId();
+        repo.run("checkout", "side");
+        for (int i = 0; i < commits; i += 1) {
+            repo.change(1, "side " + i);
+        }
+        side = Repository.headId();
+        repo.run("checkout", "master");
+    }
+
+    /** Delete the repository. */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        repo.delete();
+    }
+
+    /** Prints the log of master. */
+    @Benchmark
+    public void log() {
+        Repository.log();
+    }
+
+    /** Returns the base commit, the merge base of master and side. */
+    @Benchmark
+    public String mergeBase() {
+        return Repository.splitPoint(master, side);
+    }
+
+    /** The repository. */
+    private SyntheticRepository repo;
+    /** UID of the head of master. */
+    private String master;
+    /** UID of the head of side. */
+    private String side;
+}
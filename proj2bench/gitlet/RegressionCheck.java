@@ -0,0 +1,146 @@
+package gitlet;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/** A comparison of two runs of the benchmarks, for gating regressions.
+ *  Its main program may be invoked as
+ *      java gitlet.RegressionCheck BASELINE CURRENT [TOLERANCE]
+ *  where BASELINE and CURRENT are results written by JMH with -rf csv,
+ *  and TOLERANCE (default 0.10) is the fraction by which a score may
+ *  worsen.  It prints each benchmark present in both, with its change,
+ *  and exits with status 1 if any has regressed: that is, if its score
+ *  has worsened by more than TOLERANCE and the confidence intervals of
+ *  the two scores do not overlap, so that noise alone does not fail the
+ *  check.  Lower scores are better, except in throughput mode.
+ */
+public class RegressionCheck {
+
+    /** Compare the runs named in ARGS as described above. */
+    public static void main(String... args) {
+        if (args.length < 2 || args.length > 3) {
+            System.err.println("Usage: java gitlet.RegressionCheck "
+                               + "BASELINE CURRENT [TOLERANCE]");
+            System.exit(2);
+        }
+        double tolerance = args.length > 2 ? Double.parseDouble(args[2])
+            : 0.10;
+        Map<String, Score> baseline = read(new File(args[0]));
+        Map<String, Score> current = read(new File(args[1]));
+        int regressions = 0;
+        for (Map.Entry<String, Score> entry : current.entrySet()) {
+            Score old = baseline.get(entry.getKey());
+            if (old == null) {
+                continue;
+            }
+            Score now = entry.getValue();
+            double change = (now.score - old.score) / old.score;
+            boolean worse;
+            if (now.higherIsBetter) {
+                change = -change;
+                worse = now.score + now.error < old.score - old.error;
+            } else {
+                worse = now.score - now.error > old.score + old.error;
+            }
+            boolean regressed = worse && change > tolerance;
+            if (regressed) {
+                regressions += 1;
+            }
+            System.out.printf("%-60s %12.3f %12.3f %8s %+6.1f%%%s%n",
+                              entry.getKey(), old.score, now.score,
+                              now.unit, 100 * change,
+                              regressed ? "  REGRESSED" : "");
+        }
+        System.out.printf("%d regression(s)%n", regressions);
+        System.exit(regressions == 0 ? 0 : 1);
+    }
+
+    /** Returns the scores in the JMH CSV results FILE, keyed by the
+     *  benchmark name followed by its parameters. */
+    private static Map<String, Score> read(File file) {
+        String[] lines = Utils.readContentsAsString(file).split("\r?\n");
+        List<String> header = fields(lines[0]);
+        Map<String, Score> result = new LinkedHashMap<>();
+        for (int i = 1; i < lines.length; i += 1) {
+            if (lines[i].isBlank()) {
+                continue;
+            }
+            List<String> row = fields(lines[i]);
+            StringBuilder key = new StringBuilder(row.get(0));
+            for (int c = 0; c < header.size(); c += 1) {
+                if (header.get(c).startsWith("Param: ")
+                    && !row.get(c).isEmpty()) {
+                    key.append(' ').append(header.get(c).substring(7))
+                        .append('=').append(row.get(c));
+                }
+            }
+            String error = row.get(header.indexOf("Score Error (99.9%)"));
+            result.put(key.toString(),
+                       new Score(number(row.get(header.indexOf("Score"))),
+                                 error.isEmpty() || error.equals("NaN") ? 0
+                                 : number(error),
+                                 row.get(header.indexOf("Unit")),
+                                 row.get(header.indexOf("Mode"))
+                                     .equals("thrpt")));
+        }
+        return result;
+    }
+
+    /** Returns the comma-separated fields of LINE, with the quotes
+     *  around quoted fields removed. */
+    private static List<String> fields(String line) {
+        List<String> result = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i += 1) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                if (quoted && i + 1 < line.length()
+                    && line.charAt(i + 1) == '"') {
+                    field.append(c);
+                    i += 1;
+                } else {
+                    quoted = !quoted;
+                }
+            } else if (c == ',' && !quoted) {
+                result.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        result.add(field.toString());
+        return result;
+    }
+
+    /** Returns the number written as TEXT, which may use a decimal
+     *  comma. */
+    private static double number(String text) {
+        return Double.parseDouble(text.replace(',', '.'));
+    }
+
+    /** The score of one benchmark. */
+    private static class Score {
+        /** A SCORE in UNIT, with half-width ERROR of its confidence
+         *  interval, where HIGHERISBETTER iff it measures throughput. */
+        Score(double score, double error, String unit,
+              boolean higherIsBetter) {
+            this.score = score;
+            this.error = error;
+            this.unit = unit;
+            this.higherIsBetter = higherIsBetter;
+        }
+
+        /** The mean score. */
+        final double score;
+        /** Half the width of the confidence interval of SCORE. */
+        final double error;
+        /** The unit of SCORE. */
+        final String unit;
+        /** True iff a higher score is better. */
+        final boolean higherIsBetter;
+    }
+}
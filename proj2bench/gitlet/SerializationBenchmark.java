@@ -0,0 +1,117 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Date;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Benchmarks of the encodings of commits and trees: Java serialization
+ *  through Utils.serialize, Utils.deserialize, and Utils.readObject, and
+ *  the encodings of ObjectCodec under which they are stored.  Trees have
+ *  ENTRIES entries. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class SerializationBenchmark {
+
+    /** Number of entries in the tree. */
+    @Param({ "10", "1000" })
+    int entries;
+
+    /** Create the commit and tree, and their encoded forms. */
+    @Setup
+    public void setup() throws IOException {
+        TreeMap<String, Tree.Entry> map = new TreeMap<>();
+        for (int k = 0; k < entries; k += 1) {
+            String name = SyntheticRepository.name(k);
+            map.put(name, new Tree.Entry(ObjectStore.BLOB, Utils.sha1(name)));
+        }
+        tree = new Tree(map);
+        commit = new Commit("A synthetic commit", new Date(0),
+                            Utils.sha1("parent"), null, Utils.sha1("tree"));
+        serialized = Utils.serialize(commit);
+        file = File.createTempFile("gitlet-bench", ".ser");
+        Utils.writeObject(file, commit);
+        encodedCommit = ObjectCodec.encodeCommit(commit);
+        encodedTree = ObjectCodec.encodeTree(tree);
+    }
+
+    /** Delete the file. */
+    @TearDown
+    public void tearDown() {
+        file.delete();
+    }
+
+    /** Returns the Java serialization of a commit. */
+    @Benchmark
+    public byte[] serializeCommit() {
+        return Utils.serialize(commit);
+    }
+
+    /** Returns a commit deserialized from memory. */
+    @Benchmark
+    public Commit deserializeCommit() {
+        return Utils.deserialize(serialized, Commit.class);
+    }
+
+    /** Returns a commit deserialized from a file. */
+    @Benchmark
+    public Commit readObjectCommit() {
+        return Utils.readObject(file, Commit.class);
+    }
+
+    /** Returns the stored encoding of a commit. */
+    @Benchmark
+    public byte[] encodeCommit() {
+        return ObjectCodec.encodeCommit(commit);
+    }
+
+    /** Returns a commit decoded from its stored encoding. */
+    @Benchmark
+    public Commit decodeCommit() {
+        return ObjectCodec.decodeCommit(ByteBuffer.wrap(encodedCommit));
+    }
+
+    /** Returns the stored encoding of a tree. */
+    @Benchmark
+    public byte[] encodeTree() {
+        return ObjectCodec.encodeTree(tree);
+    }
+
+    /** Returns a tree decoded from its stored encoding. */
+    @Benchmark
+    public Tree decodeTree() {
+        return ObjectCodec.decodeTree(ByteBuffer.wrap(encodedTree));
+    }
+
+    /** The commit encoded. */
+    private Commit commit;
+    /** The tree encoded. */
+    private Tree tree;
+    /** The Java serialization of COMMIT. */
+    private byte[] serialized;
+    /** A file holding SERIALIZED. */
+    private File file;
+    /** The stored encoding of COMMIT. */
+    private byte[] encodedCommit;
+    /** The stored encoding of TREE. */
+    private byte[] encodedTree;
+}
@@ -0,0 +1,112 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.util.Random;
+
+/** A generated Gitlet repository in a temporary directory, against which
+ *  the benchmarks run commands in-process.  Since Repository fixes its
+ *  working directory (the system property user.dir) when first loaded, a
+ *  JVM can hold only one: it must be created before any use of
+ *  Repository, which JMH ensures by running each benchmark in a fresh
+ *  JVM.  The standard output is discarded while the repository exists,
+ *  so that the output of commands is formatted but not written.
+ *
+ *  File contents come from a Random with a fixed seed, so that every run
+ *  builds the same files and histories.
+ */
+class SyntheticRepository {
+
+    /** Seed of the contents of generated files. */
+    static final long SEED = 61;
+    /** Size in bytes of each generated file. */
+    static final int FILE_SIZE = 512;
+
+    /** An empty, initialized repository in a new temporary directory,
+     *  which becomes the working directory of Repository. */
+    SyntheticRepository() {
+        if (System.getProperty(OWNER) != null) {
+            throw new IllegalStateException("one repository per JVM");
+        }
+        try {
+            dir = Files.createTempDirectory("gitlet-bench").toFile();
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        System.setProperty(OWNER, dir.getPath());
+        System.setProperty("user.dir", dir.getPath());
+        stdout = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        run("init");
+    }
+
+    /** Returns the name of the Kth generated file. */
+    static String name(int k) {
+        return String.format("f%06d.txt", k);
+    }
+
+    /** Write the generated files 0 .. N-1, add them, and commit them with
+     *  message MESSAGE. */
+    void commitFiles(int n, String message) {
+        String[] add = new String[n + 1];
+        add[0] = "add";
+        for (int k = 0; k < n; k += 1) {
+            writeFile(k);
+            add[k + 1] = name(k);
+        }
+        run(add);
+        run("commit", message);
+    }
+
+    /** Write new contents to generated file K. */
+    void writeFile(int k) {
+        byte[] contents = new byte[FILE_SIZE];
+        random.nextBytes(contents);
+        Utils.writeContents(new File(dir, name(k)), contents);
+    }
+
+    /** Write new contents to generated file K, add it, and commit it with
+     *  message MESSAGE. */
+    void change(int k, String message) {
+        writeFile(k);
+        run("add", name(k));
+        run("commit", message);
+    }
+
+    /** Runs the Gitlet command given by ARGS as Main would, making its
+     *  updates durable. */
+    void run(String... args) {
+        Main.run(args);
+        Repository.flush();
+    }
+
+    /** Restore the standard output and delete my directory. */
+    void delete() {
+        System.setOut(stdout);
+        delete(dir);
+    }
+
+    /** Deletes FILE and, if it is a directory, everything under it. */
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    /** System property recording that this JVM has a repository. */
+    private static final String OWNER = "gitlet.bench.repository";
+
+    /** The working directory of the repository. */
+    private final File dir;
+    /** The standard output before I replaced it. */
+    private final PrintStream stdout;
+    /** Source of file contents. */
+    private final Random random = new Random(SEED);
+}
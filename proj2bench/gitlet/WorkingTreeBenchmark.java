@@ -0,0 +1,84 @@
+package gitlet;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Benchmarks of the commands whose cost grows with the size of the
+ *  working tree, in a repository whose single commit tracks FILES files.
+ *  The status benchmark runs in a clean working tree, whose stat data
+ *  the index has cached.  Each commit benchmark commits a change to one
+ *  file, made and staged beforehand, so the history grows by one commit
+ *  per invocation. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class WorkingTreeBenchmark {
+
+    /** Number of tracked files. */
+    @Param({ "100", "1000", "10000" })
+    int files;
+
+    /** Build the repository. */
+    @Setup(Level.Trial)
+    public void setup() {
+        repo = new SyntheticRepository();
+        repo.commitFiles(files, "initial files");
+        repo.run("status");
+    }
+
+    /** Delete the repository. */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        repo.delete();
+    }
+
+    /** Prints the status of the working tree. */
+    @Benchmark
+    public void status() {
+        Repository.status();
+    }
+
+    /** Commits a change to one file, staged by STAGED. */
+    @Benchmark
+    public void commit(Staged staged) {
+        Repository.commit("change");
+        Repository.flush();
+    }
+
+    /** A change to one file, staged before each invocation of the
+     *  commit benchmark.  Staging takes time comparable to committing, so
+     *  is left out of the measurement. */
+    @State(Scope.Benchmark)
+    public static class Staged {
+
+        /** Change and stage the next file of BENCH. */
+        @Setup(Level.Invocation)
+        public void stage(WorkingTreeBenchmark bench) {
+            bench.repo.writeFile(next);
+            bench.repo.run("add", SyntheticRepository.name(next));
+            next = (next + 1) % bench.files;
+        }
+
+        /** The file changed by the next invocation. */
+        private int next;
+    }
+
+    /** The repository. */
+    private SyntheticRepository repo;
+}